@@ -5,6 +5,8 @@ CREATE DATABASE espotifai OWNER oopd_ice6;
 -- psql specific command, won't work in other SQL clients
 \c espotifai oopd_ice6
 
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 DROP TABLE IF EXISTS playlist_song;
 DROP TABLE IF EXISTS song;
 DROP TABLE IF EXISTS playlist;
@@ -26,6 +28,7 @@ CREATE TABLE song (
     owner VARCHAR(50) NOT NULL,
     FOREIGN KEY (owner)
         REFERENCES users (username)
+        ON DELETE CASCADE
 );
 
 CREATE TABLE playlist (
@@ -33,20 +36,34 @@ CREATE TABLE playlist (
     title VARCHAR(50) NOT NULL,
     owner VARCHAR(50) NOT NULL,
     description TEXT,
+    next_position INTEGER NOT NULL DEFAULT 0,
     FOREIGN KEY (owner)
         REFERENCES users (username)
+        ON DELETE CASCADE
 );
 
 CREATE TABLE playlist_song (
     playlist_id INTEGER NOT NULL,
     song_id INTEGER NOT NULL,
-    position SERIAL NOT NULL,
+    position INTEGER NOT NULL,
+    PRIMARY KEY (playlist_id, song_id),
     FOREIGN KEY (playlist_id)
-        REFERENCES playlist (id),
+        REFERENCES playlist (id)
+        ON DELETE CASCADE,
     FOREIGN KEY (song_id)
         REFERENCES song (id)
+        ON DELETE CASCADE
 );
 
+CREATE INDEX song_owner_idx ON song (owner);
+CREATE INDEX song_title_trgm_idx ON song USING GIN (lower(title) gin_trgm_ops);
+CREATE INDEX song_artist_trgm_idx ON song USING GIN (lower(artist) gin_trgm_ops);
+CREATE INDEX song_album_trgm_idx ON song USING GIN (lower(album) gin_trgm_ops);
+CREATE INDEX song_genre_trgm_idx ON song USING GIN (lower(genre) gin_trgm_ops);
+CREATE INDEX playlist_owner_idx ON playlist (owner);
+CREATE INDEX playlist_song_song_idx ON playlist_song (song_id);
+CREATE INDEX playlist_song_position_idx ON playlist_song (playlist_id, position);
+
 GRANT ALL PRIVILEGES ON ALL TABLES IN SCHEMA public to oopd_ice6;
 GRANT ALL PRIVILEGES ON ALL SEQUENCES IN SCHEMA public to oopd_ice6;
 GRANT ALL PRIVILEGES ON ALL FUNCTIONS IN SCHEMA public to oopd_ice6;
\ No newline at end of file
@@ -16,10 +16,12 @@ INSERT INTO playlist (title, owner, description)
 INSERT INTO playlist (title, owner, description)
     VALUES ('playlist3', 'user3', 'description3');
 
-INSERT INTO playlist_song VALUES (1, 1);
-INSERT INTO playlist_song VALUES (1, 2);
-INSERT INTO playlist_song VALUES (3, 2);
-INSERT INTO playlist_song VALUES (3, 3);
+INSERT INTO playlist_song VALUES (1, 1, 0);
+INSERT INTO playlist_song VALUES (1, 2, 1);
+INSERT INTO playlist_song VALUES (3, 2, 0);
+INSERT INTO playlist_song VALUES (3, 3, 1);
+
+UPDATE playlist p SET next_position = (SELECT COUNT(*) FROM playlist_song ps WHERE ps.playlist_id = p.id);
 
 SELECT * FROM users;
 SELECT * FROM song;
@@ -2,9 +2,14 @@ import business.Player;
 import business.PlaylistManager;
 import business.SongManager;
 import business.UserManager;
+import business.events.EventBus;
 import business.exceptions.BusinessException;
+import business.playback.ClipEngine;
+import business.playback.StreamingEngine;
+import persistence.db.DBConfiguration;
 import persistence.db.Database;
 import persistence.exceptions.PersistenceException;
+import persistence.files.SongStorage;
 import presentation.controllers.FrameController;
 import presentation.controllers.home.MainScreenController;
 import presentation.controllers.home.MenuController;
@@ -17,50 +22,172 @@ import presentation.controllers.user.SignUpController;
 import presentation.views.*;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Main class of the program.
  * Creates instances of the different classes and connects them.
+ * The services that do not depend on each other are started at the same time, the interface is built
+ * while the database connections are being opened, and the time taken by each phase is logged.
  *
  * @author Group 6
  * @version 1.0
  */
 public class Main {
+
+    private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
+
     public static void main(String[] args) {
 
+        long start = System.nanoTime();
         MainFrame mainFrame = new MainFrame();
+        ExecutorService startup = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "startup");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         try {
 
-            Database db = new Database();
+            Database db = timed("configuration", Database::new);
+            Runtime.getRuntime().addShutdownHook(new Thread(db::close));
+            SongStorage songStorage = new SongStorage();
 
-            UserManager userManager = new UserManager(db);
-            SongManager songManager = new SongManager(db);
+            // opening the connections is the slowest phase, nothing else waits for it
+            CompletableFuture<Void> connection = start("database", () -> {
+                db.connect();
+                return null;
+            }, startup);
+            CompletableFuture<SongManager> songManagerFuture = start("songs", () -> new SongManager(db, songStorage), startup);
+            EventBus eventBus = new EventBus();
+            int positionInterval = DBConfiguration.get().getPositionInterval();
+            boolean clipEngine = "clip".equals(DBConfiguration.get().getPlaybackEngine());
+            CompletableFuture<Player> playerFuture = songManagerFuture.thenApplyAsync(songManager -> timed("player",
+                    () -> new Player(songManager, eventBus, clipEngine ? new ClipEngine() : new StreamingEngine(),
+                            positionInterval)), startup);
+            UserManager userManager = timed("users", () -> new UserManager(db, songStorage));
             PlaylistManager playlistManager = new PlaylistManager(db, userManager);
-            Player player = new Player(songManager);
 
-            SwingUtilities.invokeLater(() -> {
+            SongManager songManager = join(songManagerFuture);
+            Player player = join(playerFuture);
+            DBConfiguration.addReloadListener(config -> player.setPositionInterval(config.getPositionInterval()));
+            DBConfiguration.watch();
+
+            connection.whenComplete((result, error) -> {
+                if (error != null) {
+                    SwingUtilities.invokeLater(() -> {
+                        mainFrame.showError(error.getCause().getMessage());
+                        System.exit(1);
+                    });
+                }
+            });
+
+            SwingUtilities.invokeLater(() -> timed("interface", () -> {
 
                 FrameController frameController = new FrameController(mainFrame);
-                new PlayerController(frameController, player);
+                new PlayerController(frameController, player, eventBus);
                 new SignUpController(userManager, frameController);
                 new MenuController(frameController);
                 new LogInController(frameController, userManager);
                 new AddSongController(frameController, songManager, userManager);
                 new CreatePlaylistController(frameController, playlistManager, userManager);
-                new LogOutController(frameController, userManager, songManager, playlistManager, player);
-                SongDetailsController songDetailsController = new SongDetailsController(frameController, songManager, player, playlistManager, userManager);
-                PlaylistSongsController playlistSongsController = new PlaylistSongsController(player, songDetailsController, songManager, userManager, playlistManager, frameController);
-                ListPlaylistsController listPlaylistsController = new ListPlaylistsController(frameController, playlistManager, playlistSongsController, userManager);
-                AvailableSongsController availableSongsController = new AvailableSongsController(songManager, frameController, songDetailsController, playlistSongsController);
+                new LogOutController(frameController, userManager, playlistManager, songManager, player);
+                SongDetailsController songDetailsController = new SongDetailsController(frameController, songManager, player, playlistManager, userManager, eventBus);
+                PlaylistSongsController playlistSongsController = new PlaylistSongsController(player, songDetailsController, songManager, userManager, playlistManager, frameController, eventBus);
+                ListPlaylistsController listPlaylistsController = new ListPlaylistsController(frameController, playlistManager, playlistSongsController, userManager, eventBus);
+                AvailableSongsController availableSongsController = new AvailableSongsController(songManager, frameController, songDetailsController, playlistSongsController, eventBus);
                 StatsController statsController = new StatsController(frameController, songManager);
                 new MainScreenController(frameController, listPlaylistsController, statsController, availableSongsController);
                 frameController.config();
-            });
+                LOGGER.log(Level.INFO, "Startup: first screen shown after {0} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return null;
+            }));
 
-        } catch (PersistenceException | BusinessException e) {
+        } catch (PersistenceException | BusinessException | IOException e) {
             mainFrame.showError(e.getMessage());
             System.exit(1);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Method that runs a startup phase in the background, logging the time it takes.
+     *
+     * @param phase name of the phase.
+     * @param task work of the phase.
+     * @param executor executor that runs the phase.
+     * @return future result of the phase, failed with the exception of the task if it fails.
+     * @param <T> type of the result of the phase.
+     */
+    private static <T> CompletableFuture<T> start(String phase, StartupTask<T, ?> task, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return timed(phase, task);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Method that runs a startup phase, logging the time it takes.
+     *
+     * @param phase name of the phase.
+     * @param task work of the phase.
+     * @return result of the phase.
+     * @param <T> type of the result of the phase.
+     * @param <E> type of exception thrown by the phase.
+     * @throws E if the phase fails.
+     */
+    private static <T, E extends Exception> T timed(String phase, StartupTask<T, E> task) throws E {
+        long start = System.nanoTime();
+        try {
+            return task.run();
+        } finally {
+            LOGGER.log(Level.INFO, "Startup: {0} took {1} ms on {2}",
+                    new Object[]{phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Thread.currentThread().getName()});
+        }
+    }
+
+    /**
+     * Method that waits for a startup phase run in the background to end.
+     *
+     * @param future future result of the phase.
+     * @return result of the phase.
+     * @param <T> type of the result of the phase.
+     * @throws PersistenceException if the phase failed in the persistence layer.
+     * @throws BusinessException if the phase failed in the business layer.
+     */
+    private static <T> T join(CompletableFuture<T> future) throws PersistenceException, BusinessException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof PersistenceException persistenceException) {
+                throw persistenceException;
+            }
+            if (e.getCause() instanceof BusinessException businessException) {
+                throw businessException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Interface of the work done by a startup phase.
+     *
+     * @param <T> type of the result of the phase.
+     * @param <E> type of exception thrown by the phase.
+     */
+    @FunctionalInterface
+    private interface StartupTask<T, E extends Exception> {
+
+        T run() throws E;
+    }
+}
@@ -0,0 +1,506 @@
+package business;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class that keeps the decoded audio of the most recently played songs outside the heap,
+ * so playing them again does not need to read and decode their files.
+ * The audio of a song is captured while it is played the first time, and is only kept if it
+ * was read from start to end. The least recently used songs are evicted to stay within the budget.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class AudioCache {
+
+    private static final Logger LOGGER = Logger.getLogger(AudioCache.class.getName());
+
+    /**
+     * Size of the chunks the audio of a song is copied into as it is read.
+     */
+    private static final int CHUNK_BYTES = 256 * 1024;
+
+    /**
+     * Maximum number of bytes of audio kept.
+     */
+    private volatile long budget;
+    /**
+     * Cached songs by id, from the least to the most recently used.
+     */
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Number of bytes of audio kept, and number of bytes reserved by the songs being captured.
+     */
+    private long size;
+    private long reserved;
+    /**
+     * Number of songs being captured, number of invalidations so far, and the invalidation of each
+     * song removed while a capture was running, so a capture started before it is not stored.
+     */
+    private int captures;
+    private long invalidations;
+    private final Map<Integer, Long> invalidatedAt = new HashMap<>();
+    /**
+     * Number of songs served from the cache, read from their files, and evicted.
+     */
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructor method of AudioCache.
+     *
+     * @param budget maximum number of bytes of audio kept, 0 to disable the cache.
+     */
+    public AudioCache(long budget) {
+        this.budget = Math.max(0, budget);
+    }
+
+    /**
+     * Method that returns the audio of a song, from the cache if it is there, or from the given source
+     * otherwise, in which case the audio is captured as it is read to be cached at the end.
+     *
+     * @param songId id of the song.
+     * @param source source the audio is opened from if the song is not cached.
+     * @return AudioInputStream with the audio of the song.
+     * @param <E> type of exception thrown by the source.
+     * @throws E if the source could not be opened.
+     */
+    public <E extends Exception> AudioInputStream open(int songId, AudioOpener<E> source) throws E {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(songId);
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+            return new AudioInputStream(new CachedStream(entry), entry.format,
+                    entry.length / entry.format.getFrameSize());
+        }
+
+        misses.incrementAndGet();
+        AudioInputStream audio = source.open();
+        if (budget == 0 || audio.markSupported() || !isPcm(audio.getFormat())) {
+            // streams that can rewind themselves already have random access to their data
+            return audio;
+        }
+        long length = audio.getFrameLength() * audio.getFormat().getFrameSize();
+        if (audio.getFrameLength() == AudioSystem.NOT_SPECIFIED || length <= 0
+                || length > Math.min(budget, Integer.MAX_VALUE)) {
+            return audio;
+        }
+        return new AudioInputStream(new CapturingStream(songId, audio, (int) length), audio.getFormat(), audio.getFrameLength());
+    }
+
+    /**
+     * Method that changes the maximum number of bytes of audio kept, evicting the least recently
+     * used songs if they do not fit anymore.
+     *
+     * @param budget maximum number of bytes of audio kept, 0 to disable the cache.
+     */
+    public synchronized void setBudget(long budget) {
+        this.budget = Math.max(0, budget);
+        evict(0);
+    }
+
+    /**
+     * Method that removes a song from the cache, and discards the captures of the song that are running.
+     *
+     * @param songId id of the song.
+     */
+    public synchronized void invalidate(int songId) {
+        remove(songId);
+        if (captures > 0) {
+            invalidatedAt.put(songId, ++invalidations);
+        }
+    }
+
+    /**
+     * Method that returns the number of songs served from the cache.
+     *
+     * @return number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Method that returns the number of songs that had to be read from their files.
+     *
+     * @return number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Method that returns the number of songs removed to make room for others.
+     *
+     * @return number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Method that returns the number of bytes of audio kept.
+     *
+     * @return size of the cache in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Method that reserves space for the audio of a song being captured, evicting the least recently
+     * used songs until it fits.
+     *
+     * @param bytes number of bytes to reserve.
+     * @return true if the space was reserved, false if the songs being captured already use the budget.
+     */
+    private synchronized boolean reserve(long bytes) {
+        if (reserved + bytes > budget) {
+            return false;
+        }
+        evict(bytes);
+        reserved += bytes;
+        return true;
+    }
+
+    /**
+     * Method that releases the space reserved for the audio of a song that was not cached.
+     *
+     * @param bytes number of bytes reserved.
+     */
+    private synchronized void release(long bytes) {
+        reserved -= bytes;
+        endCapture();
+    }
+
+    /**
+     * Method that registers a capture that starts.
+     *
+     * @return number of invalidations before the capture started.
+     */
+    private synchronized long beginCapture() {
+        captures++;
+        return invalidations;
+    }
+
+    /**
+     * Method that unregisters a capture that ended, forgetting the invalidations once no capture is running.
+     */
+    private synchronized void endCapture() {
+        captures--;
+        if (captures == 0) {
+            invalidatedAt.clear();
+        }
+    }
+
+    /**
+     * Method that removes a song from the cache.
+     *
+     * @param songId id of the song.
+     */
+    private synchronized void remove(int songId) {
+        Entry entry = entries.remove(songId);
+        if (entry != null) {
+            size -= entry.capacity;
+        }
+    }
+
+    /**
+     * Method that stores the audio of a song in the space reserved for it, evicting the least recently
+     * used songs until it fits. The audio is discarded if the song was invalidated after its capture started.
+     *
+     * @param songId id of the song.
+     * @param entry audio of the song.
+     * @param startedAt number of invalidations before the capture started.
+     */
+    private synchronized void store(int songId, Entry entry, long startedAt) {
+        reserved -= entry.capacity;
+        Long invalidatedAt = this.invalidatedAt.get(songId);
+        endCapture();
+        if (invalidatedAt != null && invalidatedAt > startedAt) {
+            return;
+        }
+        remove(songId);
+        long needed = entry.capacity;
+        if (needed > budget) {
+            return;
+        }
+        evict(needed);
+        entries.put(songId, entry);
+        size += needed;
+        LOGGER.log(Level.FINE, "Cached song {0}: {1} bytes used, {2} hits, {3} misses, {4} evictions",
+                new Object[]{songId, size, hits.get(), misses.get(), evictions.get()});
+    }
+
+    /**
+     * Method that evicts the least recently used songs until the given number of bytes fits in the budget.
+     *
+     * @param needed number of bytes to make room for.
+     */
+    private synchronized void evict(long needed) {
+        Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+        while (size + reserved + needed > budget && iterator.hasNext()) {
+            size -= iterator.next().getValue().capacity;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Method that returns whether audio data is uncompressed PCM.
+     *
+     * @param format format of the audio.
+     * @return true if it is PCM.
+     */
+    private static boolean isPcm(AudioFormat format) {
+        AudioFormat.Encoding encoding = format.getEncoding();
+        return encoding.equals(AudioFormat.Encoding.PCM_SIGNED) || encoding.equals(AudioFormat.Encoding.PCM_UNSIGNED);
+    }
+
+    /**
+     * Interface of the sources the audio of the songs that are not cached is opened from.
+     *
+     * @param <E> type of exception thrown when the audio can not be opened.
+     */
+    @FunctionalInterface
+    public interface AudioOpener<E extends Exception> {
+
+        AudioInputStream open() throws E;
+    }
+
+    /**
+     * Class that holds the decoded audio of a song.
+     */
+    private static class Entry {
+
+        private final ByteBuffer[] chunks;
+        private final int length;
+        private final long capacity;
+        private final AudioFormat format;
+
+        private Entry(ByteBuffer[] chunks, int length, long capacity, AudioFormat format) {
+            this.chunks = chunks;
+            this.length = length;
+            this.capacity = capacity;
+            this.format = format;
+        }
+    }
+
+    /**
+     * Class that reads cached audio, each stream with its own position over the shared chunks.
+     */
+    private static class CachedStream extends InputStream {
+
+        private final Entry entry;
+        private int position;
+        private int markPosition;
+
+        private CachedStream(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public int read() {
+            if (position >= entry.length) {
+                return -1;
+            }
+            int value = entry.chunks[position / CHUNK_BYTES].get(position % CHUNK_BYTES) & 0xFF;
+            position++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= entry.length) {
+                return -1;
+            }
+            int count = Math.min(len, entry.length - position);
+            int done = 0;
+            while (done < count) {
+                int offset = position % CHUNK_BYTES;
+                int n = Math.min(count - done, CHUNK_BYTES - offset);
+                // absolute reads leave the shared chunks untouched
+                entry.chunks[position / CHUNK_BYTES].get(offset, b, off + done, n);
+                position += n;
+                done += n;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, entry.length - position));
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return entry.length - position;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            markPosition = position;
+        }
+
+        @Override
+        public synchronized void reset() {
+            position = markPosition;
+        }
+    }
+
+    /**
+     * Class that copies the audio of a song outside the heap as it is read, and stores it in the cache
+     * once the end is reached, which is either the end of the data or its announced length, whatever
+     * comes first. The copy is made of chunks allocated as the data arrives, each one reserved against
+     * the budget first, so a song that is only opened in advance or dropped early costs little.
+     * The copy is dropped, and its chunks released, if part of the song is skipped or the budget runs out.
+     */
+    private class CapturingStream extends FilterInputStream {
+
+        private final int songId;
+        private final AudioFormat format;
+        private final int length;
+        private final long startedAt;
+        private List<ByteBuffer> chunks = new ArrayList<>();
+        private long allocated;
+        private int captured;
+
+        private CapturingStream(int songId, AudioInputStream audio, int length) {
+            super(audio);
+            this.songId = songId;
+            this.format = audio.getFormat();
+            this.length = length;
+            this.startedAt = beginCapture();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (chunks != null) {
+                if (count == -1) {
+                    finish();
+                }
+                else if (count > length - captured) {
+                    drop();
+                }
+                else {
+                    copy(b, off, count);
+                    if (chunks != null && captured == length) {
+                        finish();
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                drop();
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            drop();
+            super.close();
+        }
+
+        /**
+         * Method that appends data to the copy, allocating a new chunk whenever the last one is full.
+         *
+         * @param b data read.
+         * @param off offset of the data in the array.
+         * @param count number of bytes read.
+         */
+        private void copy(byte[] b, int off, int count) {
+            while (count > 0) {
+                ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+                if (chunk == null || !chunk.hasRemaining()) {
+                    int capacity = (int) Math.min(CHUNK_BYTES, length - allocated);
+                    if (!reserve(capacity)) {
+                        drop();
+                        return;
+                    }
+                    allocated += capacity;
+                    chunk = ByteBuffer.allocateDirect(capacity);
+                    chunks.add(chunk);
+                }
+                int n = Math.min(count, chunk.remaining());
+                chunk.put(b, off, n);
+                off += n;
+                count -= n;
+                captured += n;
+            }
+        }
+
+        /**
+         * Method that discards the copy and releases the space reserved for it.
+         */
+        private void drop() {
+            if (chunks != null) {
+                chunks = null;
+                release(allocated);
+            }
+        }
+
+        /**
+         * Method that stores the captured audio in the cache, trimmed to the frames actually read.
+         */
+        private void finish() {
+            List<ByteBuffer> data = chunks;
+            chunks = null;
+            int trimmed = captured - captured % format.getFrameSize();
+            if (trimmed == 0) {
+                release(allocated);
+                return;
+            }
+            ByteBuffer[] readOnly = new ByteBuffer[data.size()];
+            for (int i = 0; i < readOnly.length; i++) {
+                readOnly[i] = data.get(i).clear().asReadOnlyBuffer();
+            }
+            store(songId, new Entry(readOnly, trimmed, allocated, format), startedAt);
+        }
+    }
+}
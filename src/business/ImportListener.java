@@ -0,0 +1,17 @@
+package business;
+
+/**
+ * Interface that defines the methods that must be implemented by the objects following the progress of a {@link SongImporter}.
+ * The methods are called from the import threads, never from the Swing event thread.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public interface ImportListener {
+
+    void importProgress(int processed, int total);
+
+    void songFailed(String path, String reason);
+
+    void importFinished(int imported, int failed, boolean cancelled);
+}
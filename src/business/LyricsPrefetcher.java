@@ -0,0 +1,168 @@
+package business;
+
+import business.entities.Song;
+import persistence.LyricsDAO;
+import persistence.exceptions.PersistenceException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class that fetches the lyrics of the songs the user is likely to open next in the background,
+ * so their details are shown without waiting for the lyrics API.
+ * Songs are fetched one at a time by a low priority thread, leaving some time between two fetches so
+ * the API is never flooded, and the songs requested last are fetched first.
+ * Songs whose lyrics are already cached are answered by the cache, so they are not tracked here.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class LyricsPrefetcher {
+
+    private static final Logger LOGGER = Logger.getLogger(LyricsPrefetcher.class.getName());
+
+    /**
+     * Maximum number of songs waiting to be fetched, the oldest requests are dropped beyond it.
+     */
+    private static final int MAX_PENDING = 64;
+
+    /**
+     * LyricsDAO instance that caches the lyrics fetched.
+     */
+    private final LyricsDAO lyricsDAO;
+    /**
+     * Number of songs after the current one whose lyrics are fetched.
+     */
+    private volatile int ahead;
+    /**
+     * Milliseconds left between two fetches.
+     */
+    private volatile long interval;
+    /**
+     * Thread that fetches the lyrics.
+     */
+    private final ExecutorService executor;
+    /**
+     * Songs waiting to be fetched by id, from the oldest to the newest request.
+     */
+    private final LinkedHashMap<Integer, Song> pending = new LinkedHashMap<>();
+    /**
+     * Whether the thread is fetching the pending songs.
+     */
+    private boolean draining;
+
+    /**
+     * Constructor method of LyricsPrefetcher.
+     *
+     * @param lyricsDAO LyricsDAO instance that caches the lyrics fetched.
+     * @param ahead number of songs after the current one whose lyrics are fetched.
+     * @param interval milliseconds left between two fetches.
+     */
+    public LyricsPrefetcher(LyricsDAO lyricsDAO, int ahead, long interval) {
+        this.lyricsDAO = lyricsDAO;
+        this.ahead = Math.max(0, ahead);
+        this.interval = Math.max(0, interval);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "lyrics-prefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Method that changes how many songs are fetched ahead and the time left between two fetches.
+     *
+     * @param ahead number of songs after the current one whose lyrics are fetched.
+     * @param interval milliseconds left between two fetches.
+     */
+    public void setLimits(int ahead, long interval) {
+        this.ahead = Math.max(0, ahead);
+        this.interval = Math.max(0, interval);
+    }
+
+    /**
+     * Method that fetches the lyrics of the song being played and of the next ones in the queue.
+     *
+     * @param upcoming current song followed by the songs that will be played after it, in order.
+     */
+    public void prefetchUpcoming(List<Song> upcoming) {
+        prefetch(upcoming.subList(0, Math.min(upcoming.size(), ahead + 1)));
+    }
+
+    /**
+     * Method that fetches the lyrics of the given songs, before the songs requested earlier.
+     *
+     * @param songs songs to fetch, the first ones are fetched first.
+     */
+    public void prefetch(List<Song> songs) {
+        synchronized (pending) {
+            // re-inserted from last to first so the first song ends up as the newest request
+            for (int i = songs.size() - 1; i >= 0; i--) {
+                Song song = songs.get(i);
+                if (song != null) {
+                    pending.remove(song.getId());
+                    pending.put(song.getId(), song);
+                }
+            }
+            while (pending.size() > MAX_PENDING) {
+                pending.remove(pending.keySet().iterator().next());
+            }
+            if (!draining && !pending.isEmpty()) {
+                draining = true;
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    /**
+     * Method that forgets a song, so its lyrics are not fetched if it is still waiting.
+     *
+     * @param songId id of the song.
+     */
+    public void forget(int songId) {
+        synchronized (pending) {
+            pending.remove(songId);
+        }
+    }
+
+    /**
+     * Method that fetches the pending songs, the newest request first, until there are none left.
+     */
+    private void drain() {
+        while (true) {
+            Song song;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                Integer newest = null;
+                for (Integer songId : pending.keySet()) {
+                    newest = songId;
+                }
+                song = pending.remove(newest);
+            }
+
+            try {
+                lyricsDAO.fetchLyrics(song.getArtist(), song.getTitle());
+            } catch (PersistenceException e) {
+                // the lyrics are fetched again when the song is opened
+                LOGGER.log(Level.FINE, "Failed to prefetch the lyrics of song " + song.getId(), e);
+            }
+
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                synchronized (pending) {
+                    draining = false;
+                }
+                return;
+            }
+        }
+    }
+}
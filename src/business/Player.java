@@ -2,39 +2,50 @@ package business;
 
 import business.entities.Playlist;
 import business.entities.Song;
-import business.exceptions.BusinessException;
+import business.events.*;
+import business.playback.AudioSource;
+import business.playback.PlaybackEngine;
+import business.playback.PositionListener;
+import business.playback.PositionSampler;
 import persistence.exceptions.PersistenceException;
 
-import javax.sound.sampled.*;
+import javax.sound.sampled.LineUnavailableException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Runnable class representing a Player.
+ * Every request is turned into a command and run, in order, by the player thread, which is the only
+ * thread that touches the queue and the engine, so requests made from the interface never race.
+ * Consecutive skips are run together so only the song they land on is opened, and consecutive
+ * seeks only move to the last position.
+ * Changes of the playback are published to an {@link EventBus}, so listeners never run on the player thread.
  *
  * @author Group 6
  * @version 1.0
  */
-public class Player implements Runnable, Observable, LineListener {
+public class Player implements Runnable {
 
-    /**
-     * Constants representing the different states of the player.
-     */
-    public static final String SONG_START = "SONG_START";
-    public static final String SONG_RESUME = "SONG_RESUME";
-    public static final String SONG_PAUSE = "SONG_PAUSE";
-    public static final String ORIGIN_CHANGE = "ORIGIN_CHANGE";
-    public static final String STOP = "STOP";
     /**
      * SongManager instance to obtain audio data from songs.
      */
     private final SongManager songManager;
     /**
-     * Clip instance to play audio.
+     * PlaybackEngine instance to play audio.
+     */
+    private final PlaybackEngine engine;
+    /**
+     * PositionSampler instance that publishes the position of the song while it plays.
+     */
+    private final PositionSampler positionSampler;
+    /**
+     * Commands waiting to be run by the player thread.
      */
-    private final Clip clip;
+    private final BlockingQueue<Command> commands;
     /**
      * Queue of songs to play.
      */
@@ -42,153 +53,258 @@ public class Player implements Runnable, Observable, LineListener {
     /**
      * Current song being played.
      */
-    private Song currentSong;
+    private volatile Song currentSong;
     /**
      * Current playlist being played.
      */
-    private Playlist currentPlaylist;
+    private volatile Playlist currentPlaylist;
     /**
      * Boolean values representing the different states of the player.
      */
     private boolean playlistLoop;
     private boolean songLoop;
-    private boolean isPaused;
+    private volatile boolean isPaused;
+    /**
+     * Number of songs opened so far, given to the engine as the token of each song so the end
+     * of a song that has already been replaced is ignored.
+     */
+    private volatile long songCount;
+    /**
+     * Song whose head is being decoded in advance and the source given to the engine for it, null if none.
+     */
+    private Song prefetchedSong;
+    private AudioSource prefetchedSource;
     /**
-     * List of observers following the Observer pattern.
+     * EventBus instance the changes of the playback are published to.
      */
-    private final List<Observer> observers;
+    private final EventBus events;
 
     /**
      * Constructor method of Player.
-     * Initializes the queue, observers, clip attributes and starts a new thread.
+     * Initializes the queue, engine attributes and starts a new thread.
      *
      * @param songManager SongManager instance to obtain audio data from songs.
-     * @throws BusinessException if there was an error initializing the audio service.
+     * @param events EventBus instance the changes of the playback are published to.
+     * @param engine PlaybackEngine instance to play audio.
+     * @param positionInterval milliseconds between two updates of the position of the song.
      */
-    public Player(SongManager songManager) throws BusinessException {
+    public Player(SongManager songManager, EventBus events, PlaybackEngine engine, long positionInterval) {
         this.songManager = songManager;
+        this.positionSampler = new PositionSampler(engine, positionInterval);
         this.queue = new LinkedList<>();
-        this.observers = new ArrayList<>();
+        this.events = events;
+        this.commands = new LinkedBlockingQueue<>();
+        this.engine = engine;
 
-        try {
-            clip = AudioSystem.getClip();
-        } catch (LineUnavailableException e) {
-            throw new BusinessException("Failed to initialise playback service", e);
-        }
-
-        clip.addLineListener(this);
-        new Thread(this).start();
+        engine.setEndListener(token -> commands.add(new Command(CommandType.END, token)));
+        new Thread(this, "player").start();
     }
 
     /**
-     * LineListener method that is called when a line event occurs.
-     *
-     * @param event a line event that describes the change
-     */
-    @Override
-    public void update(LineEvent event) {
-        if (event.getType() == LineEvent.Type.STOP) {
-            if (isPaused) {
-                return;
-            }
-            synchronized (clip) {
-                clip.notifyAll();
-            }
-        }
-    }
-
-    /**
-     * Thread run method that waits, closes and plays next song when required.
+     * Thread run method that takes the commands one by one and runs them.
      */
     @SuppressWarnings("InfiniteLoopStatement")
     @Override
     public void run() {
 
         while (true) {
+            Command command;
             try {
-                synchronized (clip) {
-                    clip.wait();
-                }
+                command = commands.take();
             } catch (InterruptedException e) {
                 continue;
             }
 
-            clip.close();
-
-            playNextSong();
+            switch (command.type) {
+                case PLAY -> play(command.song, command.playlist);
+                case QUEUE_PLAYLIST -> queuePlaylist(command.playlist);
+                case NEXT -> skip(1 + dropRepeated(CommandType.NEXT));
+                case END -> {
+                    // a song that was replaced while its end was being reported must not skip its successor
+                    if (command.value == songCount) {
+                        skip(1);
+                    }
+                }
+                case PREVIOUS -> playPreviousSong();
+                case SEEK -> {
+                    long position = command.value;
+                    while (commands.peek() != null && commands.peek().type == CommandType.SEEK) {
+                        position = commands.poll().value;
+                    }
+                    engine.setPosition(position);
+                    positionSampler.sampleNow();
+                }
+                case PAUSE -> switchPause();
+                case PLAYLIST_LOOP -> {
+                    playlistLoop = !playlistLoop;
+                    prefetchNextSong();
+                }
+                case SONG_LOOP -> {
+                    songLoop = !songLoop;
+                    prefetchNextSong();
+                }
+                case STOP -> stopPlayback();
+            }
         }
     }
 
     /**
-     * Method that attaches an observer to the observers list.
+     * Method that removes the commands of the given type waiting at the head of the queue.
+     * Only the player thread takes commands, so the head can not change between checking and removing it.
      *
-     * @param o observer to attach
+     * @param type type of the commands to remove.
+     * @return number of commands removed.
      */
-    @Override
-    public void attach(Observer o) {
-        observers.add(o);
+    private int dropRepeated(CommandType type) {
+        int count = 0;
+        while (commands.peek() != null && commands.peek().type == type) {
+            commands.poll();
+            count++;
+        }
+        return count;
     }
 
     /**
-     * Method that detaches an observer from the observers list.
+     * Method that moves forward the given number of songs and plays the one it lands on.
+     * The songs skipped on the way are not opened.
      *
-     * @param o observer to detach
+     * @param count number of songs to move forward.
      */
-    @Override
-    public void detach(Observer o) {
-        observers.remove(o);
+    private void skip(int count) {
+        engine.stop();
+        for (int i = 1; i < count; i++) {
+            if (!moveToNextSong()) {
+                stopPlayback();
+                return;
+            }
+        }
+        playNextSong();
     }
 
     /**
-     * Method that notifies all observers of a change.
+     * Method that makes the next song in the queue the current one.
+     * It checks the current player state and acts accordingly.
      *
-     * @param message message to send to observers.
+     * @return false if there is no next song.
      */
-    @Override
-    public void notifyObservers(String message) {
-        for (Observer observer : observers) {
-            observer.update(message, currentSong);
+    private boolean moveToNextSong() {
+
+        if (!songLoop) {
+
+            if (queue.isEmpty() && playlistLoop && currentPlaylist != null) {
+                queue.addAll(currentPlaylist.getSongs());
+            }
+
+            currentSong = queue.poll();
         }
+
+        return currentSong != null;
     }
 
     /**
      * Method that starts playing the next song in the queue.
-     * It checks the current player state and acts accordingly.
      */
     private void playNextSong() {
 
         isPaused = false;
 
-        if (!songLoop) {
+        if (!moveToNextSong()) {
+            stopPlayback();
+            return;
+        }
 
-            if (queue.isEmpty() && playlistLoop) {
-                queue.addAll(currentPlaylist.getSongs());
+        // the engine recognises a prefetched song by the source it was given
+        AudioSource source = prefetchedSong != null && prefetchedSong.getId() == currentSong.getId()
+                ? prefetchedSource
+                : getSource(currentSong);
+        prefetchedSong = null;
+        prefetchedSource = null;
+
+        songCount++;
+        try {
+            engine.open(source, songCount);
+        } catch (IOException e) {
+            events.publish(new PlaybackFailedEvent(currentSong, "Failed to retrieve audio data from song"));
+            return;
+        } catch (LineUnavailableException e) {
+            events.publish(new PlaybackFailedEvent(currentSong, "Failed to start song playback"));
+            return;
+        }
+
+        events.publish(new SongStartedEvent(currentSong));
+        positionSampler.start();
+        prefetchNextSong();
+    }
+
+    /**
+     * Method that returns the source of the audio data of a song.
+     *
+     * @param song song to read.
+     * @return a source that opens the song from its beginning.
+     */
+    private AudioSource getSource(Song song) {
+        int songId = song.getId();
+        return () -> {
+            try {
+                return songManager.getSongAudio(songId);
+            } catch (PersistenceException e) {
+                throw new IOException(e.getMessage(), e);
             }
+        };
+    }
 
-            currentSong = queue.poll();
+    /**
+     * Method that returns the song that will be played after the current one, following the same
+     * rules as {@link #playNextSong()}, without modifying the queue.
+     *
+     * @return the next song, null if playback will stop.
+     */
+    private Song getNextSong() {
+        if (songLoop) {
+            return currentSong;
+        }
+        Song next = queue.peek();
+        if (next == null && playlistLoop && currentPlaylist != null) {
+            List<Song> songs = currentPlaylist.getSongs();
+            next = songs.isEmpty() ? null : songs.get(0);
         }
+        return next;
+    }
 
-        if (currentSong == null) {
-            stop();
-            return;
+    /**
+     * Method that asks the engine to decode the head of the next song while the current one plays,
+     * so the transition is immediate. A prefetch of another song is cancelled.
+     * The lyrics of the current and next songs are fetched in the background too.
+     */
+    private void prefetchNextSong() {
+        prefetchLyrics();
+        Song next = currentSong == null ? null : getNextSong();
+        if (next == null) {
+            prefetchedSong = null;
+            prefetchedSource = null;
+            engine.cancelPrefetch();
+        }
+        else if (prefetchedSong == null || prefetchedSong.getId() != next.getId()) {
+            prefetchedSong = next;
+            prefetchedSource = getSource(next);
+            engine.prefetch(prefetchedSource);
         }
+    }
 
-        AudioInputStream songAudio;
-        try {
-            songAudio = songManager.getSongAudio(currentSong.getId());
-        } catch (PersistenceException e) {
-            notifyObservers("Failed to retrieve audio data from song");
+    /**
+     * Method that asks for the lyrics of the current song and of the songs that follow it to be fetched.
+     */
+    private void prefetchLyrics() {
+        if (currentSong == null) {
             return;
         }
-
-        notifyObservers(SONG_START);
-
-        try {
-            clip.open(songAudio);
-            clip.start();
-        } catch (LineUnavailableException | IOException e) {
-            notifyObservers("Failed to start song playback");
+        List<Song> upcoming = new ArrayList<>();
+        upcoming.add(currentSong);
+        upcoming.addAll(queue);
+        if (playlistLoop && currentPlaylist != null) {
+            upcoming.addAll(currentPlaylist.getSongs());
         }
+        songManager.getLyricsPrefetcher().prefetchUpcoming(upcoming);
     }
 
     /**
@@ -198,27 +314,35 @@ public class Player implements Runnable, Observable, LineListener {
      * @param playlist playlist to add.
      */
     public void queue(Song song, Playlist playlist) {
+        commands.add(new Command(CommandType.PLAY, song, playlist));
+    }
+
+    /**
+     * Method that replaces the queue with a song, or with a playlist from that song, and starts playing.
+     *
+     * @param song song to play.
+     * @param playlist playlist to queue, null to only play the song.
+     */
+    private void play(Song song, Playlist playlist) {
 
         queue.clear();
 
         if (playlist == null) {
             currentPlaylist = null;
-            notifyObservers(ORIGIN_CHANGE);
+            events.publish(new QueueOriginChangedEvent(currentSong));
             queue.add(song);
         }
         else {
 
             if (currentPlaylist == null || playlist.getId() != currentPlaylist.getId()) {
-                notifyObservers(ORIGIN_CHANGE);
+                events.publish(new QueueOriginChangedEvent(currentSong));
             }
 
             currentPlaylist = playlist;
             loadFromSong(song);
         }
 
-        synchronized (clip) {
-            clip.notifyAll();
-        }
+        skip(1);
     }
 
     /**
@@ -227,12 +351,26 @@ public class Player implements Runnable, Observable, LineListener {
      * @param playlist playlist to queue.
      */
     public void queue(Playlist playlist) {
+        commands.add(new Command(CommandType.QUEUE_PLAYLIST, null, playlist));
+    }
+
+    /**
+     * Method that replaces the queue with the songs of the playlist that follow the current song.
+     *
+     * @param playlist playlist to queue.
+     */
+    private void queuePlaylist(Playlist playlist) {
+
+        if (currentSong == null) {
+            return;
+        }
 
         queue.clear();
 
         currentPlaylist = playlist;
         loadFromSong(currentSong);
-        queue.pop();
+        queue.poll();
+        prefetchNextSong();
     }
 
     /**
@@ -259,21 +397,31 @@ public class Player implements Runnable, Observable, LineListener {
      * Method that informs the thread to skip to next song.
      */
     public void nextSong() {
-        synchronized (clip) {
-            clip.notifyAll();
-        }
+        commands.add(new Command(CommandType.NEXT));
     }
 
     /**
      * Method that plays the previous song, if possible.
      */
     public void previousSong() {
+        commands.add(new Command(CommandType.PREVIOUS));
+    }
+
+    /**
+     * Method that plays the previous song of the playlist, or restarts the current one if there is none.
+     */
+    private void playPreviousSong() {
+
+        if (currentSong == null) {
+            return;
+        }
 
         songLoop = false;
 
         if (currentPlaylist == null) {
-            clip.setMicrosecondPosition(0);
-            notifyObservers(SONG_START);
+            engine.setPosition(0);
+            events.publish(new SongStartedEvent(currentSong));
+            positionSampler.sampleNow();
             return;
         }
 
@@ -282,13 +430,12 @@ public class Player implements Runnable, Observable, LineListener {
         if (previousSong >= 0) {
             queue.addFirst(currentSong);
             queue.addFirst(songs.get(previousSong));
-            synchronized (clip) {
-                clip.notifyAll();
-            }
+            skip(1);
         }
         else {
-            clip.setMicrosecondPosition(0);
-            notifyObservers(SONG_START);
+            engine.setPosition(0);
+            events.publish(new SongStartedEvent(currentSong));
+            positionSampler.sampleNow();
         }
     }
 
@@ -296,13 +443,24 @@ public class Player implements Runnable, Observable, LineListener {
      * Method that stops the current song and clears the queue.
      */
     public void stop() {
+        commands.add(new Command(CommandType.STOP));
+    }
+
+    /**
+     * Method that stops the current song and forgets what was being played.
+     */
+    private void stopPlayback() {
         isPaused = true;
-        clip.close();
+        engine.stop();
+        engine.cancelPrefetch();
+        positionSampler.stop();
+        prefetchedSong = null;
+        prefetchedSource = null;
 
         currentSong = null;
         currentPlaylist = null;
 
-        notifyObservers(STOP);
+        events.publish(new PlaybackStoppedEvent());
     }
 
     /**
@@ -311,21 +469,33 @@ public class Player implements Runnable, Observable, LineListener {
      * @param second position to set to.
      */
     public void setPosition(int second) {
-        clip.setMicrosecondPosition(second * 1000000L);
+        commands.add(new Command(CommandType.SEEK, second * 1000000L));
     }
 
     /**
      * Method that toggles the pause state of the player.
      */
     public void togglePause() {
-        if (clip.isRunning()) {
+        commands.add(new Command(CommandType.PAUSE));
+    }
+
+    /**
+     * Method that pauses the current song if it is playing, or resumes it otherwise.
+     */
+    private void switchPause() {
+        if (currentSong == null) {
+            return;
+        }
+        if (engine.isRunning()) {
             isPaused = true;
-            clip.stop();
-            notifyObservers(SONG_PAUSE);
+            engine.pause();
+            positionSampler.stop();
+            events.publish(new SongPausedEvent(currentSong));
         } else {
             isPaused = false;
-            clip.start();
-            notifyObservers(SONG_RESUME);
+            engine.start();
+            positionSampler.start();
+            events.publish(new SongResumedEvent(currentSong));
         }
     }
 
@@ -333,14 +503,14 @@ public class Player implements Runnable, Observable, LineListener {
      * Method that toggles the playlist loop state.
      */
     public void togglePlaylistLoop() {
-        playlistLoop = !playlistLoop;
+        commands.add(new Command(CommandType.PLAYLIST_LOOP));
     }
 
     /**
      * Method that toggles the song loop state.
      */
     public void toggleSongLoop() {
-        songLoop = !songLoop;
+        commands.add(new Command(CommandType.SONG_LOOP));
     }
 
     /**
@@ -367,12 +537,39 @@ public class Player implements Runnable, Observable, LineListener {
         return currentSong;
     }
 
+    /**
+     * Method that adds a listener notified of the position of the song while it plays.
+     *
+     * @param listener listener to add.
+     */
+    public void addPositionListener(PositionListener listener) {
+        positionSampler.subscribe(listener);
+    }
+
+    /**
+     * Method that removes a listener of the position of the song.
+     *
+     * @param listener listener to remove.
+     */
+    public void removePositionListener(PositionListener listener) {
+        positionSampler.unsubscribe(listener);
+    }
+
+    /**
+     * Method that changes the time between two updates of the position of the song.
+     *
+     * @param positionInterval milliseconds between two updates of the position of the song.
+     */
+    public void setPositionInterval(long positionInterval) {
+        positionSampler.setInterval(positionInterval);
+    }
+
     /**
      * Getter method that returns the current position in the song.
      * @return current position in the song.
      */
     public double getPosition() {
-        return clip.getMicrosecondPosition() / 1000000D;
+        return engine.getPosition() / 1000000D;
     }
 
     /**
@@ -402,4 +599,41 @@ public class Player implements Runnable, Observable, LineListener {
                         String.valueOf(seconds) :
                         '0' + String.valueOf(seconds));
     }
-}
\ No newline at end of file
+
+    /**
+     * Types of the commands run by the player thread.
+     */
+    private enum CommandType {
+        PLAY, QUEUE_PLAYLIST, NEXT, END, PREVIOUS, SEEK, PAUSE, PLAYLIST_LOOP, SONG_LOOP, STOP
+    }
+
+    /**
+     * Class representing a request made to the player, with its arguments.
+     */
+    private static class Command {
+
+        private final CommandType type;
+        private final Song song;
+        private final Playlist playlist;
+        private final long value;
+
+        private Command(CommandType type) {
+            this(type, null, null, 0);
+        }
+
+        private Command(CommandType type, long value) {
+            this(type, null, null, value);
+        }
+
+        private Command(CommandType type, Song song, Playlist playlist) {
+            this(type, song, playlist, 0);
+        }
+
+        private Command(CommandType type, Song song, Playlist playlist, long value) {
+            this.type = type;
+            this.song = song;
+            this.playlist = playlist;
+            this.value = value;
+        }
+    }
+}
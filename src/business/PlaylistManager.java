@@ -1,23 +1,37 @@
 package business;
 
 import business.entities.Playlist;
+import business.entities.Song;
 import business.exceptions.BusinessException;
 import persistence.PlaylistDAO;
 import persistence.db.DBPlaylistDAO;
 import persistence.db.Database;
 import persistence.exceptions.PersistenceException;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Manager class that handles the requests of the controllers to do with playlists
  * and fetches the information of the playlistDAO to return what is needed.
+ * The playlists loaded most recently with their songs are cached until they are modified, so refreshing
+ * a screen does not query the database again. Every caller gets its own copy of a cached playlist.
  *
  * @author Group 6
  * @version 1.0
  */
 public class PlaylistManager {
+
+    private static final Logger LOGGER = Logger.getLogger(PlaylistManager.class.getName());
+
+    /**
+     * Maximum number of playlists cached, the least recently used ones are evicted beyond it.
+     */
+    private static final int MAX_CACHED = 32;
+
     /**
      * Object containing the information and methods necessary to connect to the database.
      */
@@ -26,6 +40,19 @@ public class PlaylistManager {
      * Object of the class that manages the information of the user logged in.
      */
     private final UserManager userManager;
+    /**
+     * Playlists with their songs by id, from the least to the most recently used.
+     */
+    private final LinkedHashMap<Integer, Playlist> playlistCache;
+    /**
+     * Number of times the cache has been invalidated, used to discard loads that raced with a modification.
+     */
+    private final AtomicLong cacheInvalidations;
+    /**
+     * Counters of the lookups served by the cache and the ones that had to query the database.
+     */
+    private final AtomicLong cacheHits;
+    private final AtomicLong cacheMisses;
 
     /**
      * Constructor method for a playlistManager object.
@@ -37,19 +64,10 @@ public class PlaylistManager {
     public PlaylistManager(Database db, UserManager userManager) {
         playlistDAO = new DBPlaylistDAO(db);
         this.userManager = userManager;
-    }
-
-    /**
-     * Method that deletes all playlists of a username.
-     *
-     * @param username name of the user whose playlists are to be deleted.
-     */
-    public void deleteUserPlaylists(String username) throws BusinessException {
-        try {
-            playlistDAO.deletePlaylistsByUser(username);
-        } catch (PersistenceException e) {
-            throw new BusinessException(e);
-        }
+        playlistCache = new LinkedHashMap<>(16, 0.75f, true);
+        cacheInvalidations = new AtomicLong();
+        cacheHits = new AtomicLong();
+        cacheMisses = new AtomicLong();
     }
 
     /**
@@ -96,58 +114,18 @@ public class PlaylistManager {
     }
 
     /**
-     * Method that gets the names of all playlists owned by the user logged in at the moment.
+     * Method that gets the playlists owned by the user logged in at the moment.
+     * Only their ids and names are filled in.
      *
-     * @return array of playlist names.
+     * @return list of the user's playlists.
      * @throws BusinessException if there was an error when calling a method from the playlistDAO.
      */
-    public String[] getUserPlaylistsName() throws BusinessException {
-
-        List<Playlist> allPlaylists;
-        List<String> userPlaylists = new ArrayList<>();
+    public List<Playlist> getUserPlaylists() throws BusinessException {
         try {
-            allPlaylists = playlistDAO.getPlaylists();
+            return playlistDAO.getPlaylistsByOwner(userManager.getCurrentUser());
         } catch (PersistenceException e) {
             throw new BusinessException(e);
         }
-
-        for (int i = 0; i < allPlaylists.size(); i++) {
-            if (allPlaylists.get(i).getOwner().equals(userManager.getCurrentUser())) {
-                userPlaylists.add(allPlaylists.get(i).getName());
-            }
-        }
-
-        return userPlaylists.toArray(new String[0]);
-    }
-
-    /**
-     * Method that gets the ids of all playlists owned by the user logged in at the moment.
-     *
-     * @return array of playlist ids.
-     * @throws BusinessException if there was an error when calling a method from the playlistDAO.
-     */
-    public int[] getUserPlaylistsId() throws BusinessException {
-
-        List<Playlist> allPlaylists;
-        List<Integer> userPlaylists = new ArrayList<>();
-        try {
-            allPlaylists = playlistDAO.getPlaylists();
-        } catch (PersistenceException e) {
-            throw new BusinessException(e);
-        }
-
-        for (int i = 0; i < allPlaylists.size(); i++) {
-            if (allPlaylists.get(i).getOwner().equals(userManager.getCurrentUser())) {
-                userPlaylists.add(allPlaylists.get(i).getId());
-            }
-        }
-
-        int[] array = new int[userPlaylists.size()];
-        for (int i = 0; i < array.length; i++) {
-            array[i] = userPlaylists.get(i);
-        }
-
-        return array;
     }
 
     /**
@@ -157,23 +135,19 @@ public class PlaylistManager {
      * @throws BusinessException if there was an error when calling a method from the playlistDAO.
      */
     public String[][] getSongsInPlaylist(int id) throws BusinessException {
-        try {
-            Playlist playlist = playlistDAO.getPlaylistWithSongs(id);
-            String[][] songs = new String[playlist.getSongs().size()][3];
-
-            for (int i = 0; i < playlist.getSongs().size(); i++){
-                songs[i][0] = playlist.getSongs().get(i).getTitle();
-                songs[i][1] = playlist.getSongs().get(i).getOwner();
-                songs[i][2] = Integer.toString(playlist.getSongs().get(i).getId());
-            }
-            return songs;
-        }
-        catch (PersistenceException e){
-            throw new BusinessException(e);
+        Playlist playlist = getPlaylistWithSongs(id);
+        if (playlist == null) {
+            return new String[0][0];
         }
-        catch (NullPointerException ignored){
+
+        List<Song> playlistSongs = playlist.getSongs();
+        String[][] songs = new String[playlistSongs.size()][3];
+        for (int i = 0; i < playlistSongs.size(); i++){
+            songs[i][0] = playlistSongs.get(i).getTitle();
+            songs[i][1] = playlistSongs.get(i).getOwner();
+            songs[i][2] = Integer.toString(playlistSongs.get(i).getId());
         }
-        return new String[0][0];
+        return songs;
     }
 
     /**
@@ -186,28 +160,57 @@ public class PlaylistManager {
      */
     public boolean addSongToPlaylist(int songId, int playlistId) throws BusinessException{
         try {
-            Playlist playlist = playlistDAO.getPlaylistWithSongs(playlistId);
             return playlistDAO.addSong(playlistId, songId);
         }
         catch (PersistenceException e){
             throw new BusinessException(e);
         }
+        finally {
+            invalidate(playlistId);
+        }
     }
 
     /**
      * Method that gets a playlist with all of its songs.
+     * The playlist is only read from the database if it is not cached.
      *
      * @param id id of the playlist to get.
-     * @return playlist with all of its songs inside.
+     * @return copy of the playlist with all of its songs inside, null if it does not exist.
      * @throws BusinessException if there was an error when calling a method from the playlistDAO.
      */
     public Playlist getPlaylistWithSongs(int id) throws BusinessException{
+        Playlist playlist;
+        synchronized (playlistCache) {
+            playlist = playlistCache.get(id);
+        }
+        if (playlist != null) {
+            cacheHits.incrementAndGet();
+            return playlist.copy();
+        }
+        long misses = cacheMisses.incrementAndGet();
+        LOGGER.log(Level.FINE, "Playlist {0} not cached: {1} hits, {2} misses",
+                new Object[]{id, cacheHits.get(), misses});
+
+        long invalidations = cacheInvalidations.get();
         try {
-            return playlistDAO.getPlaylistWithSongs(id);
+            playlist = playlistDAO.getPlaylistWithSongs(id);
         }
         catch (PersistenceException e){
             throw new BusinessException(e);
         }
+
+        if (playlist != null) {
+            synchronized (playlistCache) {
+                // a playlist modified while it was being read must not be cached
+                if (invalidations == cacheInvalidations.get()) {
+                    playlistCache.put(id, playlist.copy());
+                    while (playlistCache.size() > MAX_CACHED) {
+                        playlistCache.remove(playlistCache.keySet().iterator().next());
+                    }
+                }
+            }
+        }
+        return playlist;
     }
 
     /**
@@ -223,6 +226,9 @@ public class PlaylistManager {
         catch (PersistenceException e){
             throw new BusinessException(e);
         }
+        finally {
+            invalidate(id);
+        }
     }
 
     /**
@@ -233,15 +239,20 @@ public class PlaylistManager {
      * @throws BusinessException if there was an error when calling a method from the playlistDAO.
      */
     public void deleteSongInPlaylist(int songId, int playlistId) throws BusinessException{
+        Playlist playlist = getPlaylistWithSongs(playlistId);
+        if (playlist == null) {
+            return;
+        }
         try {
-            Playlist playlist = playlistDAO.getPlaylistWithSongs(playlistId);
-            for (int i = 0; i < playlist.getSongs().size(); i++){
-                if (playlist.getSongs().get(i).getId() == songId){
+            for (Song song : playlist.getSongs()){
+                if (song.getId() == songId){
                     playlistDAO.removeSong(playlistId, songId);
                 }
             }
         } catch (PersistenceException e){
             throw new BusinessException(e);
+        } finally {
+            invalidate(playlistId);
         }
     }
 
@@ -254,16 +265,19 @@ public class PlaylistManager {
      * @throws BusinessException if there was an error when calling a method from the playlistDAO.
      */
     public void swapPositions(int playlistId, int songId1, int songId2) throws BusinessException {
+        Playlist playlist = getPlaylistWithSongs(playlistId);
+        if (playlist == null) {
+            return;
+        }
         try {
             int position1 = 0;
             int position2 = 0;
-            Playlist playlist = playlistDAO.getPlaylistWithSongs(playlistId);
-            for (int i = 0; i < playlist.getSongs().size(); i++) {
-                if (songId1 == playlist.getSongs().get(i).getId()) {
-                    position1 = playlist.getSongs().get(i).getPosition();
+            for (Song song : playlist.getSongs()) {
+                if (songId1 == song.getId()) {
+                    position1 = song.getPosition();
                 }
-                if (songId2 == playlist.getSongs().get(i).getId()) {
-                    position2 = playlist.getSongs().get(i).getPosition();
+                if (songId2 == song.getId()) {
+                    position2 = song.getPosition();
                 }
             }
             playlistDAO.setPosition(playlistId, songId2, position1);
@@ -272,5 +286,31 @@ public class PlaylistManager {
         catch (PersistenceException e){
             throw new BusinessException(e);
         }
+        finally {
+            invalidate(playlistId);
+        }
+    }
+
+    /**
+     * Method that removes every playlist from the cache.
+     * It must be called when songs are deleted, as they may belong to any playlist.
+     */
+    public void clearCache() {
+        synchronized (playlistCache) {
+            cacheInvalidations.incrementAndGet();
+            playlistCache.clear();
+        }
+    }
+
+    /**
+     * Method that removes a modified playlist from the cache.
+     *
+     * @param playlistId id of the playlist that was modified.
+     */
+    private void invalidate(int playlistId) {
+        synchronized (playlistCache) {
+            cacheInvalidations.incrementAndGet();
+            playlistCache.remove(playlistId);
+        }
     }
 }
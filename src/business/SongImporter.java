@@ -0,0 +1,199 @@
+package business;
+
+import business.entities.Song;
+import persistence.SongDAO;
+import persistence.exceptions.PersistenceException;
+import persistence.files.SongFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that imports several song files at the same time.
+ * Every file is decoded and measured by one of the workers of the given pool, and the songs that
+ * are ready are stored in the database in batches, so a whole folder can be imported with a few
+ * transactions and without blocking the caller.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class SongImporter {
+
+    /**
+     * Maximum number of songs stored in the database with a single transaction.
+     */
+    private static final int BATCH_SIZE = 25;
+
+    /**
+     * SongDAO instance to import and store the songs.
+     */
+    private final SongDAO songDAO;
+    /**
+     * Songs to import and the paths of their files, in the same order.
+     */
+    private final List<Song> songs;
+    private final List<String> paths;
+    /**
+     * Whether the MP3 files are stored compressed instead of being expanded to WAV.
+     */
+    private final boolean keepCompressed;
+    /**
+     * Listener notified of the progress of the import.
+     */
+    private final ImportListener listener;
+    /**
+     * Songs whose file has been imported but that are not stored yet, guarded by the importer.
+     */
+    private final List<Song> pendingSongs;
+    private final List<SongFile> pendingFiles;
+    /**
+     * Lock that makes batches be stored one at a time.
+     */
+    private final Object storeLock;
+    /**
+     * Counters of the files processed, stored and failed.
+     */
+    private final AtomicInteger processed;
+    private final AtomicInteger imported;
+    private final AtomicInteger failed;
+    /**
+     * Whether the import has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Constructor method of SongImporter.
+     *
+     * @param songDAO SongDAO instance to import and store the songs.
+     * @param songs songs to import.
+     * @param paths paths of the files of the songs, in the same order.
+     * @param keepCompressed true to store the MP3 files compressed, false to expand them to WAV.
+     * @param listener listener notified of the progress of the import.
+     */
+    SongImporter(SongDAO songDAO, List<Song> songs, List<String> paths, boolean keepCompressed, ImportListener listener) {
+        this.songDAO = songDAO;
+        this.songs = List.copyOf(songs);
+        this.paths = List.copyOf(paths);
+        this.keepCompressed = keepCompressed;
+        this.listener = listener;
+        this.pendingSongs = new ArrayList<>();
+        this.pendingFiles = new ArrayList<>();
+        this.storeLock = new Object();
+        this.processed = new AtomicInteger();
+        this.imported = new AtomicInteger();
+        this.failed = new AtomicInteger();
+    }
+
+    /**
+     * Method that starts importing every file on the given workers.
+     *
+     * @param workers pool of threads that will decode the files.
+     */
+    void start(ExecutorService workers) {
+        if (songs.isEmpty()) {
+            listener.importFinished(0, 0, false);
+            return;
+        }
+        for (int i = 0; i < songs.size(); i++) {
+            int index = i;
+            workers.execute(() -> importSong(index));
+        }
+    }
+
+    /**
+     * Method that cancels the import.
+     * Files not started yet are skipped, and files already imported but not stored are discarded.
+     * Songs already stored are kept.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Method that returns whether the import has been cancelled.
+     *
+     * @return true if the import was cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Method run by a worker that imports the file of a song and stores the pending songs
+     * when a batch is complete or when it is the last file to be processed.
+     *
+     * @param index index of the song to import.
+     */
+    private void importSong(int index) {
+        if (!cancelled) {
+            try {
+                SongFile file = songDAO.importFile(paths.get(index), keepCompressed);
+                synchronized (this) {
+                    pendingSongs.add(songs.get(index));
+                    pendingFiles.add(file);
+                }
+            } catch (PersistenceException e) {
+                failed.incrementAndGet();
+                listener.songFailed(paths.get(index), e.getMessage());
+            }
+        }
+
+        int done = processed.incrementAndGet();
+        listener.importProgress(done, songs.size());
+
+        boolean last = done == songs.size();
+        boolean batchReady;
+        synchronized (this) {
+            batchReady = pendingSongs.size() >= BATCH_SIZE;
+        }
+        if (batchReady || last) {
+            store(last);
+        }
+    }
+
+    /**
+     * Method that stores the pending songs in the database, one batch at a time.
+     *
+     * @param last whether every file has been processed, in which case the import is finished afterwards.
+     */
+    private void store(boolean last) {
+        synchronized (storeLock) {
+            while (true) {
+                List<Song> batchSongs;
+                List<SongFile> batchFiles;
+                synchronized (this) {
+                    int size = Math.min(BATCH_SIZE, pendingSongs.size());
+                    if (size == 0) {
+                        break;
+                    }
+                    batchSongs = new ArrayList<>(pendingSongs.subList(0, size));
+                    batchFiles = new ArrayList<>(pendingFiles.subList(0, size));
+                    pendingSongs.subList(0, size).clear();
+                    pendingFiles.subList(0, size).clear();
+                }
+
+                if (!cancelled) {
+                    try {
+                        imported.addAndGet(songDAO.createSongs(batchSongs, batchFiles).size());
+                    } catch (PersistenceException e) {
+                        failed.addAndGet(batchSongs.size());
+                        for (Song song : batchSongs) {
+                            listener.songFailed(song.getTitle(), e.getMessage());
+                        }
+                    }
+                }
+                batchFiles.forEach(songDAO::discardFile);
+
+                if (!last) {
+                    break;
+                }
+            }
+
+            if (last) {
+                listener.importFinished(imported.get(), failed.get(), cancelled);
+            }
+        }
+    }
+}
@@ -6,13 +6,27 @@ import business.exceptions.BusinessException;
 import persistence.LyricsDAO;
 import persistence.SongDAO;
 import persistence.api.APILyricsDAO;
+import persistence.api.CachedLyricsDAO;
+import persistence.db.DBConfiguration;
 import persistence.db.DBSongDAO;
 import persistence.db.Database;
 import persistence.exceptions.PersistenceException;
+import persistence.files.SongStorage;
 
 import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 /**
  * Manager of the Songs.
  *
@@ -21,6 +35,15 @@ import java.util.List;
  */
 public class SongManager {
 
+    /**
+     * Maximum number of song files imported at the same time.
+     */
+    private static final int IMPORT_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    /**
+     * Number of songs read at a time when searching.
+     */
+    private static final int SEARCH_PAGE = 200;
+
     /**
      * SongDAO instance to retrieve and manage the song.
      */
@@ -29,63 +52,137 @@ public class SongManager {
      * LyricsDAO instance to retrieve and manage the lyrics.
      */
     private final LyricsDAO lyricsDAO;
+    /**
+     * Pool of threads that decode the imported song files.
+     */
+    private final ExecutorService importWorkers;
+    /**
+     * Decoded audio of the songs played most recently.
+     */
+    private final AudioCache audioCache;
+    /**
+     * Fetches in the background the lyrics of the songs likely to be opened next.
+     */
+    private final LyricsPrefetcher lyricsPrefetcher;
+    /**
+     * Whether imported MP3 files are kept compressed unless the user chooses otherwise.
+     */
+    private final boolean keepCompressedByDefault;
 
     /**
      * Constructor method for SongManager.
      *
      * @param db Database instance to be used.
+     * @param songStorage SongStorage instance that manages the song files.
      * @throws BusinessException if there's an error with the database.
      */
-    public SongManager(Database db) throws BusinessException {
+    public SongManager(Database db, SongStorage songStorage) throws BusinessException {
         try {
-            songDAO = new DBSongDAO(db);
-            lyricsDAO = new APILyricsDAO();
-        } catch (PersistenceException e) {
+            songDAO = new DBSongDAO(db, songStorage);
+            DBConfiguration config = DBConfiguration.get();
+            APILyricsDAO apiLyricsDAO = new APILyricsDAO(config.getLyricsApiUrl(),
+                    Duration.ofMillis(config.getLyricsTimeout()), config.getLyricsMaxRequests());
+            CachedLyricsDAO cachedLyricsDAO = new CachedLyricsDAO(apiLyricsDAO, Path.of("data", "lyrics"),
+                    config.getLyricsCacheSize(), Duration.ofHours(config.getLyricsTtl()),
+                    Duration.ofHours(config.getLyricsNegativeTtl()));
+            lyricsDAO = cachedLyricsDAO;
+            keepCompressedByDefault = "compressed".equals(config.getSongStorage());
+            audioCache = new AudioCache(config.getAudioCacheSize() * 1024L * 1024L);
+            lyricsPrefetcher = new LyricsPrefetcher(lyricsDAO, config.getLyricsPrefetch(), config.getLyricsPrefetchInterval());
+            DBConfiguration.addReloadListener(reloaded -> {
+                apiLyricsDAO.setLimits(Duration.ofMillis(reloaded.getLyricsTimeout()), reloaded.getLyricsMaxRequests());
+                cachedLyricsDAO.setLimits(reloaded.getLyricsCacheSize(), Duration.ofHours(reloaded.getLyricsTtl()),
+                        Duration.ofHours(reloaded.getLyricsNegativeTtl()));
+                audioCache.setBudget(reloaded.getAudioCacheSize() * 1024L * 1024L);
+                lyricsPrefetcher.setLimits(reloaded.getLyricsPrefetch(), reloaded.getLyricsPrefetchInterval());
+            });
+        } catch (PersistenceException | IOException e) {
             throw new BusinessException(e);
         }
+        AtomicInteger workerCount = new AtomicInteger();
+        importWorkers = Executors.newFixedThreadPool(IMPORT_WORKERS, r -> {
+            Thread thread = new Thread(r, "song-import-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
-     * Adds a song to the database.
+     * Imports several songs in the background, decoding their files in parallel and storing them in batches.
      *
-     * @param song Song to be added.
-     * @param path Path of the song to be added.
-     * @throws BusinessException if there's an error when adding the song.
+     * @param songs Songs to be added.
+     * @param paths Paths of the files of the songs, in the same order.
+     * @param keepCompressed true to store the MP3 files as they are and decode them when played,
+     *                       false to expand them to WAV now.
+     * @param listener Listener notified of the progress of the import.
+     * @return the running import, which can be cancelled.
      */
-    public void addSong(Song song, String path) throws BusinessException {
+    public SongImporter importSongs(List<Song> songs, List<String> paths, boolean keepCompressed, ImportListener listener) {
+        SongImporter importer = new SongImporter(songDAO, songs, paths, keepCompressed, listener);
+        importer.start(importWorkers);
+        return importer;
+    }
+
+    /**
+     * Tells whether imported MP3 files are kept compressed unless the user chooses otherwise.
+     *
+     * @return true if they are kept compressed by default, false if they are expanded to WAV.
+     */
+    public boolean isKeepCompressedByDefault() {
+        return keepCompressedByDefault;
+    }
+
+    /**
+     * Passes every song in the database to an action, one at a time as they are read.
+     *
+     * @param action action that receives the id, title, genre, album, artist and owner of each song.
+     * @throws BusinessException if there's an error with the database.
+     */
+    public void forEachSong(Consumer<String[]> action) throws BusinessException {
         try {
-            songDAO.createSong(song, path);
+            songDAO.forEachSong(song -> action.accept(toRow(song)));
         } catch (PersistenceException e) {
             throw new BusinessException(e);
         }
     }
 
     /**
-     * Retrieves all the songs from the database.
+     * Passes every song whose title, artist, album or genre contain the given text to an action,
+     * reading the matches one page at a time.
      *
-     * @return List of songs in the database.
+     * @param text the text to look for, case is ignored.
+     * @param action action that receives the id, title, genre, album, artist and owner of each song.
      * @throws BusinessException if there's an error with the database.
      */
-    public List<String[]> getAllSongs() throws BusinessException {
-        try {
-            List<String[]> list = new ArrayList<>();
-            List<Song> listSongs = songDAO.getAllSongs();
-            if(listSongs != null) {
-                for (int i = 0; i < listSongs.size(); i++) {
-                    String[] song = new String[6];
-                    song[0] = String.valueOf(listSongs.get(i).getId());
-                    song[1] = listSongs.get(i).getTitle();
-                    song[2] = listSongs.get(i).getGenre();
-                    song[3] = listSongs.get(i).getAlbum();
-                    song[4] = listSongs.get(i).getArtist();
-                    song[5] = listSongs.get(i).getOwner();
-                    list.add(song);
-                }
+    public void forEachMatchingSong(String text, Consumer<String[]> action) throws BusinessException {
+        int afterId = 0;
+        List<Song> page;
+        do {
+            page = searchSongs(text, false, afterId, SEARCH_PAGE);
+            for (Song song : page) {
+                action.accept(toRow(song));
             }
-            return list;
-        } catch (PersistenceException e) {
-            throw new BusinessException(e);
-        }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == SEARCH_PAGE);
+    }
+
+    /**
+     * Builds the row of a song shown in the song lists.
+     *
+     * @param song Song to show.
+     * @return the id, title, genre, album, artist and owner of the song.
+     */
+    private static String[] toRow(Song song) {
+        return new String[]{
+                String.valueOf(song.getId()),
+                song.getTitle(),
+                song.getGenre(),
+                song.getAlbum(),
+                song.getArtist(),
+                song.getOwner()
+        };
     }
 
     /**
@@ -97,37 +194,34 @@ public class SongManager {
     public void deleteSong(Song song) throws BusinessException {
         try {
             songDAO.deleteSong(song.getId());
+            audioCache.invalidate(song.getId());
+            lyricsPrefetcher.forget(song.getId());
         } catch (PersistenceException e) {
             throw new BusinessException(e);
         }
     }
 
     /**
-     * Deletes all the user's songs from the database.
+     * Forgets the cached audio and lyrics of songs deleted along with their owner.
      *
-     * @param username the user's username.
-     * @throws BusinessException if there's an error when deleting the songs.
+     * @param songIds ids of the deleted songs.
      */
-    public void deleteUserSongs(String username) throws BusinessException {
-        try {
-            songDAO.deleteSongsByUser(username);
-        } catch (PersistenceException e) {
-            throw new BusinessException(e);
+    public void forgetSongs(List<Integer> songIds) {
+        for (int songId : songIds) {
+            audioCache.invalidate(songId);
+            lyricsPrefetcher.forget(songId);
         }
     }
 
     /**
-     * Retrieves all the lyrics from a song
+     * Retrieves all the lyrics from a song in the background.
      *
      * @param song Song to get the lyrics from.
-     * @return the song's lyrics.
+     * @return the song's future lyrics, or the error message if they could not be fetched.
      */
-    public String getLyrics(Song song) {
-        try {
-            return lyricsDAO.fetchLyrics(song.getArtist(), song.getTitle());
-        } catch (PersistenceException e) {
-            return e.getMessage();
-        }
+    public CompletableFuture<String> getLyricsAsync(Song song) {
+        return lyricsDAO.fetchLyricsAsync(song.getArtist(), song.getTitle())
+                .exceptionally(e -> (e instanceof CompletionException ? e.getCause() : e).getMessage());
     }
 
     /**
@@ -136,33 +230,19 @@ public class SongManager {
      * @return List of statistics of all the songs in the database.
      */
     public ArrayList<Statistic> getStats() {
-        ArrayList<Statistic> stats = new ArrayList<>();
-        List<Song> songs;
-        boolean found = false;
+        Map<String, Statistic> genres = new HashMap<>();
         try {
-            songs = songDAO.getAllSongs();
+            songDAO.forEachSong(song -> genres
+                    .computeIfAbsent(song.getGenre(), genre -> new Statistic(genre, 0))
+                    .addOne());
         } catch (PersistenceException e) {
-            songs = null;
-        }
-        if (songs == null) {
             return null;
         }
-
-        for (int i = 0; i < songs.size(); i++) {
-            for (int j = 0; j < stats.size(); j++) {
-                if (songs.get(i).getGenre().equals(stats.get(j).getGenre())) {
-                    stats.get(j).addOne();
-                    found = true;
-                    break;
-                }
-            }
-            if (found) {
-                found = false;
-            } else {
-                stats.add(new Statistic(songs.get(i).getGenre(), 1));
-            }
+        if (genres.isEmpty()) {
+            return null;
         }
 
+        ArrayList<Statistic> stats = new ArrayList<>(genres.values());
         stats.sort((o1, o2) -> o2.getNumSongs() - o1.getNumSongs());
         return stats;
     }
@@ -184,13 +264,49 @@ public class SongManager {
     }
 
     /**
-     * Gets the audio from song through the id.
+     * Searches the songs whose title, artist, album or genre match the given text, one page at a time.
+     *
+     * @param text the text to look for, case is ignored.
+     * @param prefix true to only match values starting with the text, false to match it anywhere.
+     * @param afterId id of the last song of the previous page, 0 for the first page.
+     * @param limit maximum number of songs in the page.
+     * @return the songs of the page, empty if there are no more matches.
+     * @throws BusinessException if there's an error when searching the songs.
+     */
+    public List<Song> searchSongs(String text, boolean prefix, int afterId, int limit) throws BusinessException {
+        try {
+            return songDAO.searchSongs(text, prefix, afterId, limit);
+        } catch (PersistenceException e) {
+            throw new BusinessException(e);
+        }
+    }
+
+    /**
+     * Gets the audio from song through the id, from the audio cache if the song was played recently.
      *
      * @param id the song's id.
      * @return the audio of the song.
      * @throws PersistenceException if there's an error when getting the song.
      */
     public AudioInputStream getSongAudio(int id) throws PersistenceException {
-        return songDAO.getAudio(id);
+        return audioCache.open(id, () -> songDAO.getAudio(id));
+    }
+
+    /**
+     * Gets the cache of decoded audio, to check how well it is working.
+     *
+     * @return the audio cache.
+     */
+    public AudioCache getAudioCache() {
+        return audioCache;
+    }
+
+    /**
+     * Gets the prefetcher that fetches lyrics in the background before the songs are opened.
+     *
+     * @return the lyrics prefetcher.
+     */
+    public LyricsPrefetcher getLyricsPrefetcher() {
+        return lyricsPrefetcher;
     }
 }
@@ -1,11 +1,13 @@
 package business;
 
+import business.entities.DeletionReport;
 import business.entities.User;
 import business.exceptions.BusinessException;
 import persistence.UserDAO;
 import persistence.db.DBUserDAO;
 import persistence.db.Database;
 import persistence.exceptions.PersistenceException;
+import persistence.files.SongStorage;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -30,9 +32,10 @@ public class UserManager {
      * Constructor method for UserManager.
      *
      * @param db Database instance to be used.
+     * @param songStorage SongStorage instance that manages the song files, to remove the ones of deleted users.
      */
-    public UserManager(Database db){
-        userDAO = new DBUserDAO(db);
+    public UserManager(Database db, SongStorage songStorage) {
+        userDAO = new DBUserDAO(db, songStorage);
     }
 
     /**
@@ -121,13 +124,13 @@ public class UserManager {
     }
 
     /**
-     * Method used to delete a user.
+     * Method used to delete a user along with their songs and playlists.
      *
      * @param username String with the user to delete.
-     * @return boolean indicating if the user has been deleted or not.
+     * @return DeletionReport with what has been deleted.
      * @throws BusinessException if there's an error with the database.
      */
-    public boolean deleteUser(String username) throws BusinessException {
+    public DeletionReport deleteUser(String username) throws BusinessException {
         try {
             return userDAO.deleteUser(username);
         } catch (PersistenceException e) {
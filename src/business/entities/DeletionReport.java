@@ -0,0 +1,97 @@
+package business.entities;
+
+import java.util.List;
+
+/**
+ * Entity storing what was removed when an account was deleted.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class DeletionReport {
+    /**
+     * Number of rows removed from each table.
+     */
+    private final int users;
+    private final int playlists;
+    private final int playlistEntries;
+    /**
+     * Ids of the songs removed.
+     */
+    private final List<Integer> songIds;
+    /**
+     * Bytes taken by the audio files of the removed songs.
+     */
+    private final long bytesFreed;
+
+    /**
+     * Constructor method of DeletionReport.
+     *
+     * @param users number of users removed.
+     * @param songIds ids of the songs removed.
+     * @param playlists number of playlists removed.
+     * @param playlistEntries number of songs removed from playlists.
+     * @param bytesFreed bytes taken by the audio files of the removed songs.
+     */
+    public DeletionReport(int users, List<Integer> songIds, int playlists, int playlistEntries, long bytesFreed) {
+        this.users = users;
+        this.songIds = List.copyOf(songIds);
+        this.playlists = playlists;
+        this.playlistEntries = playlistEntries;
+        this.bytesFreed = bytesFreed;
+    }
+
+    /**
+     * Method that returns whether the account existed and was removed.
+     *
+     * @return true if the user was deleted.
+     */
+    public boolean isDeleted() {
+        return users > 0;
+    }
+
+    /**
+     * Getter method that returns the number of songs removed.
+     *
+     * @return number of songs.
+     */
+    public int getSongs() {
+        return songIds.size();
+    }
+
+    /**
+     * Getter method that returns the ids of the songs removed.
+     *
+     * @return ids of the songs.
+     */
+    public List<Integer> getSongIds() {
+        return songIds;
+    }
+
+    /**
+     * Getter method that returns the number of playlists removed.
+     *
+     * @return number of playlists.
+     */
+    public int getPlaylists() {
+        return playlists;
+    }
+
+    /**
+     * Method that returns the total number of rows removed from the database.
+     *
+     * @return number of rows.
+     */
+    public int getRows() {
+        return users + songIds.size() + playlists + playlistEntries;
+    }
+
+    /**
+     * Getter method that returns the bytes taken by the audio files of the removed songs.
+     *
+     * @return number of bytes.
+     */
+    public long getBytesFreed() {
+        return bytesFreed;
+    }
+}
@@ -108,6 +108,17 @@ public class Playlist {
         return List.copyOf(songs);
     }
 
+    /**
+     * Method that returns a copy of the playlist, with its own list of songs.
+     *
+     * @return copy of the playlist.
+     */
+    public Playlist copy() {
+        Playlist copy = new Playlist(id, name, owner, description);
+        copy.songs.addAll(songs);
+        return copy;
+    }
+
     /**
      * Method that adds a song to the playlist.
      *
@@ -0,0 +1,100 @@
+package business.events;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that delivers the events published by the different parts of the program to the listeners subscribed to them.
+ * Publishing never runs a listener: each subscription delivers its events on its own executor, such as the
+ * Swing event thread for the views or the background threads of the bus for slow work, so a slow listener
+ * only delays its own events.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class EventBus {
+
+    /**
+     * Subscriptions to the events of the bus.
+     */
+    private final List<Subscription<?>> subscriptions;
+    /**
+     * Threads that deliver the events of the subscriptions made with {@link #background()}.
+     */
+    private final ExecutorService background;
+
+    /**
+     * Constructor method of EventBus.
+     */
+    public EventBus() {
+        subscriptions = new CopyOnWriteArrayList<>();
+        AtomicInteger threadCount = new AtomicInteger();
+        background = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "event-bus-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Method that returns the executor that delivers events on the background threads of the bus.
+     *
+     * @return the background executor.
+     */
+    public Executor background() {
+        return background;
+    }
+
+    /**
+     * Method that subscribes a listener to the events of a type, which are all delivered.
+     *
+     * @param type type of the events received, subclasses included.
+     * @param executor executor the events are delivered on.
+     * @param listener listener the events are delivered to.
+     * @return the subscription, which can be cancelled.
+     * @param <E> type of the events received.
+     */
+    public <E> Subscription<E> subscribe(Class<E> type, Executor executor, EventListener<? super E> listener) {
+        return subscribe(type, executor, false, listener);
+    }
+
+    /**
+     * Method that subscribes a listener to the events of a type.
+     *
+     * @param type type of the events received, subclasses included.
+     * @param executor executor the events are delivered on.
+     * @param coalesce true to only deliver the latest of the pending events of each class.
+     * @param listener listener the events are delivered to.
+     * @return the subscription, which can be cancelled.
+     * @param <E> type of the events received.
+     */
+    public <E> Subscription<E> subscribe(Class<E> type, Executor executor, boolean coalesce, EventListener<? super E> listener) {
+        Subscription<E> subscription = new Subscription<>(this, type, executor, coalesce, listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Method that removes a subscription.
+     *
+     * @param subscription subscription to remove.
+     */
+    void remove(Subscription<?> subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Method that publishes an event to the listeners subscribed to its type.
+     *
+     * @param event event to publish.
+     */
+    public void publish(Object event) {
+        for (Subscription<?> subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+}
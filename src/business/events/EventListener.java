@@ -0,0 +1,14 @@
+package business.events;
+
+/**
+ * Interface that defines the method that must be implemented by the objects subscribed to events of the {@link EventBus}.
+ *
+ * @param <E> type of the events received.
+ * @author Group 6
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface EventListener<E> {
+
+    void onEvent(E event);
+}
@@ -0,0 +1,35 @@
+package business.events;
+
+import business.entities.Song;
+
+/**
+ * Abstract class of the events published by the {@link business.Player} when the state of the playback changes.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public abstract class PlaybackEvent {
+
+    /**
+     * Song the event refers to, null if there is none.
+     */
+    private final Song song;
+
+    /**
+     * Constructor method of PlaybackEvent.
+     *
+     * @param song song the event refers to, null if there is none.
+     */
+    protected PlaybackEvent(Song song) {
+        this.song = song;
+    }
+
+    /**
+     * Getter method that returns the song the event refers to.
+     *
+     * @return the song, null if there is none.
+     */
+    public Song getSong() {
+        return song;
+    }
+}
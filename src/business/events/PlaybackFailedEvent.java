@@ -0,0 +1,37 @@
+package business.events;
+
+import business.entities.Song;
+
+/**
+ * Event published when a song can not be played.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class PlaybackFailedEvent extends PlaybackEvent {
+
+    /**
+     * Message that describes the error.
+     */
+    private final String message;
+
+    /**
+     * Constructor method of PlaybackFailedEvent.
+     *
+     * @param song song that could not be played.
+     * @param message message that describes the error.
+     */
+    public PlaybackFailedEvent(Song song, String message) {
+        super(song);
+        this.message = message;
+    }
+
+    /**
+     * Getter method that returns the message that describes the error.
+     *
+     * @return the error message.
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,17 @@
+package business.events;
+
+/**
+ * Event published when the playback stops and there is no song left to play.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class PlaybackStoppedEvent extends PlaybackEvent {
+
+    /**
+     * Constructor method of PlaybackStoppedEvent.
+     */
+    public PlaybackStoppedEvent() {
+        super(null);
+    }
+}
@@ -0,0 +1,33 @@
+package business.events;
+
+/**
+ * Event published when a song is added to a playlist, so the views showing it can be refreshed.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class PlaylistChangedEvent {
+
+    /**
+     * Id of the playlist.
+     */
+    private final int playlistId;
+
+    /**
+     * Constructor method of PlaylistChangedEvent.
+     *
+     * @param playlistId id of the playlist that changed.
+     */
+    public PlaylistChangedEvent(int playlistId) {
+        this.playlistId = playlistId;
+    }
+
+    /**
+     * Getter method that returns the id of the playlist.
+     *
+     * @return the playlist id.
+     */
+    public int getPlaylistId() {
+        return playlistId;
+    }
+}
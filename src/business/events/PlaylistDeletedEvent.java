@@ -0,0 +1,33 @@
+package business.events;
+
+/**
+ * Event published when a playlist is deleted, so the lists of playlists can be refreshed.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class PlaylistDeletedEvent {
+
+    /**
+     * Id of the playlist.
+     */
+    private final int playlistId;
+
+    /**
+     * Constructor method of PlaylistDeletedEvent.
+     *
+     * @param playlistId id of the deleted playlist.
+     */
+    public PlaylistDeletedEvent(int playlistId) {
+        this.playlistId = playlistId;
+    }
+
+    /**
+     * Getter method that returns the id of the playlist.
+     *
+     * @return the playlist id.
+     */
+    public int getPlaylistId() {
+        return playlistId;
+    }
+}
@@ -0,0 +1,21 @@
+package business.events;
+
+import business.entities.Song;
+
+/**
+ * Event published when the songs queued are replaced by the ones of another playlist, or by a single song.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class QueueOriginChangedEvent extends PlaybackEvent {
+
+    /**
+     * Constructor method of QueueOriginChangedEvent.
+     *
+     * @param song song being played when the queue changed.
+     */
+    public QueueOriginChangedEvent(Song song) {
+        super(song);
+    }
+}
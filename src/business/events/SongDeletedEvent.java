@@ -0,0 +1,33 @@
+package business.events;
+
+/**
+ * Event published when a song is deleted, so the views listing it can be refreshed.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class SongDeletedEvent {
+
+    /**
+     * Id of the deleted song.
+     */
+    private final int songId;
+
+    /**
+     * Constructor method of SongDeletedEvent.
+     *
+     * @param songId id of the deleted song.
+     */
+    public SongDeletedEvent(int songId) {
+        this.songId = songId;
+    }
+
+    /**
+     * Getter method that returns the id of the deleted song.
+     *
+     * @return the song id.
+     */
+    public int getSongId() {
+        return songId;
+    }
+}
@@ -0,0 +1,21 @@
+package business.events;
+
+import business.entities.Song;
+
+/**
+ * Event published when the song being played is paused.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class SongPausedEvent extends PlaybackEvent {
+
+    /**
+     * Constructor method of SongPausedEvent.
+     *
+     * @param song song that was paused.
+     */
+    public SongPausedEvent(Song song) {
+        super(song);
+    }
+}
@@ -0,0 +1,33 @@
+package business.events;
+
+/**
+ * Event published when the user goes to pick songs to add to a playlist, so the list of songs is up to date.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class SongPickRequestedEvent {
+
+    /**
+     * Id of the playlist.
+     */
+    private final int playlistId;
+
+    /**
+     * Constructor method of SongPickRequestedEvent.
+     *
+     * @param playlistId id of the playlist the songs will be added to.
+     */
+    public SongPickRequestedEvent(int playlistId) {
+        this.playlistId = playlistId;
+    }
+
+    /**
+     * Getter method that returns the id of the playlist.
+     *
+     * @return the playlist id.
+     */
+    public int getPlaylistId() {
+        return playlistId;
+    }
+}
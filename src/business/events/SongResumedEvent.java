@@ -0,0 +1,21 @@
+package business.events;
+
+import business.entities.Song;
+
+/**
+ * Event published when the paused song is resumed.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class SongResumedEvent extends PlaybackEvent {
+
+    /**
+     * Constructor method of SongResumedEvent.
+     *
+     * @param song song that was resumed.
+     */
+    public SongResumedEvent(Song song) {
+        super(song);
+    }
+}
@@ -0,0 +1,21 @@
+package business.events;
+
+import business.entities.Song;
+
+/**
+ * Event published when a song starts playing, or is played again from its start.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class SongStartedEvent extends PlaybackEvent {
+
+    /**
+     * Constructor method of SongStartedEvent.
+     *
+     * @param song song that started.
+     */
+    public SongStartedEvent(Song song) {
+        super(song);
+    }
+}
@@ -0,0 +1,126 @@
+package business.events;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Class representing the subscription of a listener to one type of event of an {@link EventBus}.
+ * The events are delivered on the executor of the subscription, one at a time and in the order they
+ * were published. If the subscription coalesces events, an event replaces any pending event of the
+ * same class, so a listener that falls behind only receives the latest of each.
+ *
+ * @param <E> type of the events received.
+ * @author Group 6
+ * @version 1.0
+ */
+public class Subscription<E> {
+
+    /**
+     * EventBus the subscription belongs to.
+     */
+    private final EventBus bus;
+    /**
+     * Type of the events received.
+     */
+    private final Class<E> type;
+    /**
+     * Executor the events are delivered on.
+     */
+    private final Executor executor;
+    /**
+     * Whether pending events of the same class are replaced by newer ones.
+     */
+    private final boolean coalesce;
+    /**
+     * Listener the events are delivered to.
+     */
+    private final EventListener<? super E> listener;
+    /**
+     * Events published and not delivered yet.
+     */
+    private final ArrayDeque<E> pending;
+    /**
+     * Whether a delivery of the pending events is scheduled on the executor.
+     */
+    private boolean scheduled;
+    /**
+     * Whether the subscription has been cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Constructor method of Subscription.
+     *
+     * @param bus EventBus the subscription belongs to.
+     * @param type type of the events received.
+     * @param executor executor the events are delivered on.
+     * @param coalesce whether pending events of the same class are replaced by newer ones.
+     * @param listener listener the events are delivered to.
+     */
+    Subscription(EventBus bus, Class<E> type, Executor executor, boolean coalesce, EventListener<? super E> listener) {
+        this.bus = bus;
+        this.type = type;
+        this.executor = executor;
+        this.coalesce = coalesce;
+        this.listener = listener;
+        this.pending = new ArrayDeque<>();
+    }
+
+    /**
+     * Method that queues an event for delivery if it is of the type of the subscription.
+     *
+     * @param event event published.
+     */
+    void offer(Object event) {
+        if (cancelled || !type.isInstance(event)) {
+            return;
+        }
+        boolean schedule;
+        synchronized (this) {
+            if (coalesce) {
+                // the replaced event is dropped and the new one goes last, so the order of the classes stays right
+                Iterator<E> iterator = pending.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().getClass() == event.getClass()) {
+                        iterator.remove();
+                    }
+                }
+            }
+            pending.add(type.cast(event));
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            executor.execute(this::deliver);
+        }
+    }
+
+    /**
+     * Method that delivers the pending events to the listener, on the executor of the subscription.
+     */
+    private void deliver() {
+        List<E> events;
+        synchronized (this) {
+            events = new ArrayList<>(pending);
+            pending.clear();
+            scheduled = false;
+        }
+        for (E event : events) {
+            if (cancelled) {
+                return;
+            }
+            listener.onEvent(event);
+        }
+    }
+
+    /**
+     * Method that cancels the subscription, so no more events are delivered.
+     */
+    public void cancel() {
+        cancelled = true;
+        bus.remove(this);
+    }
+}
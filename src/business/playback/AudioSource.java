@@ -0,0 +1,17 @@
+package business.playback;
+
+import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
+
+/**
+ * Functional interface that opens the audio data of a song from its beginning.
+ * Engines use it to read the song again when it has to be rewound.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface AudioSource {
+
+    AudioInputStream open() throws IOException;
+}
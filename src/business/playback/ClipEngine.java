@@ -0,0 +1,195 @@
+package business.playback;
+
+import javax.sound.sampled.*;
+import java.io.IOException;
+import java.util.function.LongConsumer;
+
+/**
+ * Playback engine backed by a {@link Clip}.
+ * The whole song is decoded into memory when it is opened, which makes seeking instant
+ * at the cost of a start delay and heap usage proportional to the length of the song.
+ * Every song gets its own clip, so the events of a clip that was already replaced are never taken for the end of the new song.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class ClipEngine implements PlaybackEngine {
+
+    /**
+     * Clip instance to play audio, null until the first song is opened.
+     */
+    private volatile Clip clip;
+    /**
+     * Listener notified when a song reaches its end.
+     */
+    private volatile LongConsumer endListener;
+    /**
+     * Whether the song was stopped on purpose, so the next STOP event is not the end of the song.
+     */
+    private volatile boolean paused;
+    /**
+     * Source of the next song and its stream, opened in advance so its header is already parsed.
+     */
+    private AudioSource nextSource;
+    private AudioInputStream nextAudio;
+
+    /**
+     * Method that loads a song into the clip and starts playing it.
+     *
+     * @param source source of the audio data of the song.
+     * @param token token given back to the end listener when the song ends.
+     * @throws IOException if the audio data could not be read.
+     * @throws LineUnavailableException if the clip could not be opened.
+     */
+    @Override
+    public void open(AudioSource source, long token) throws IOException, LineUnavailableException {
+        stop();
+        AudioInputStream prefetched = null;
+        synchronized (this) {
+            if (nextSource == source) {
+                prefetched = nextAudio;
+                nextAudio = null;
+            }
+            nextSource = null;
+        }
+        cancelPrefetch();
+        Clip opened = AudioSystem.getClip();
+        opened.addLineListener(event -> {
+            // a pause or the close of this clip also stops it, and a clip started again is not at its end
+            if (event.getType() == LineEvent.Type.STOP && clip == opened && !paused && !opened.isRunning()) {
+                LongConsumer listener = endListener;
+                if (listener != null) {
+                    listener.accept(token);
+                }
+            }
+        });
+        try (AudioInputStream audio = prefetched != null ? prefetched : source.open()) {
+            opened.open(audio);
+        } catch (IOException | LineUnavailableException e) {
+            opened.close();
+            throw e;
+        }
+        clip = opened;
+        paused = false;
+        opened.start();
+    }
+
+    /**
+     * Method that opens the stream of the next song in advance.
+     * The clip needs the whole song, so only the stream is opened and nothing is decoded.
+     *
+     * @param source source of the audio data of the next song.
+     */
+    @Override
+    public void prefetch(AudioSource source) {
+        cancelPrefetch();
+        try {
+            AudioInputStream audio = source.open();
+            synchronized (this) {
+                nextSource = source;
+                nextAudio = audio;
+            }
+        } catch (IOException ignored) {
+            // the song will be opened again when it has to be played
+        }
+    }
+
+    /**
+     * Method that closes the stream opened in advance, if any.
+     */
+    @Override
+    public void cancelPrefetch() {
+        AudioInputStream audio;
+        synchronized (this) {
+            audio = nextAudio;
+            nextAudio = null;
+            nextSource = null;
+        }
+        if (audio != null) {
+            try {
+                audio.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * Method that resumes the song.
+     */
+    @Override
+    public void start() {
+        paused = false;
+        Clip current = clip;
+        if (current != null) {
+            current.start();
+        }
+    }
+
+    /**
+     * Method that pauses the song.
+     */
+    @Override
+    public void pause() {
+        paused = true;
+        Clip current = clip;
+        if (current != null) {
+            current.stop();
+        }
+    }
+
+    /**
+     * Method that stops the song and frees its audio data.
+     */
+    @Override
+    public void stop() {
+        paused = true;
+        Clip current = clip;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Method that returns whether the song is playing.
+     *
+     * @return true if the clip is running.
+     */
+    @Override
+    public boolean isRunning() {
+        Clip current = clip;
+        return current != null && current.isRunning();
+    }
+
+    /**
+     * Method that moves the song to the given position.
+     *
+     * @param microseconds position to move to.
+     */
+    @Override
+    public void setPosition(long microseconds) {
+        Clip current = clip;
+        if (current != null) {
+            current.setMicrosecondPosition(microseconds);
+        }
+    }
+
+    /**
+     * Method that returns the position of the song.
+     *
+     * @return position in microseconds.
+     */
+    @Override
+    public long getPosition() {
+        Clip current = clip;
+        return current == null ? 0 : current.getMicrosecondPosition();
+    }
+
+    /**
+     * Method that sets the listener notified when a song reaches its end.
+     *
+     * @param listener listener to notify.
+     */
+    @Override
+    public void setEndListener(LongConsumer listener) {
+        endListener = listener;
+    }
+}
@@ -0,0 +1,36 @@
+package business.playback;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.io.IOException;
+import java.util.function.LongConsumer;
+
+/**
+ * Interface that defines the methods that must be implemented by the audio backends of the {@link business.Player}.
+ * An engine plays one song at a time, and tells its listener when the song reaches its end,
+ * along with the token the song was opened with, so the end of a song that has already been replaced can be told apart.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public interface PlaybackEngine {
+
+    void open(AudioSource source, long token) throws IOException, LineUnavailableException;
+
+    void prefetch(AudioSource source);
+
+    void cancelPrefetch();
+
+    void start();
+
+    void pause();
+
+    void stop();
+
+    boolean isRunning();
+
+    void setPosition(long microseconds);
+
+    long getPosition();
+
+    void setEndListener(LongConsumer listener);
+}
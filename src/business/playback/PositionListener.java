@@ -0,0 +1,14 @@
+package business.playback;
+
+/**
+ * Interface that defines the method that must be implemented by the objects notified of the position
+ * of the song being played.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface PositionListener {
+
+    void positionChanged(long microseconds);
+}
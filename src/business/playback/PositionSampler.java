@@ -0,0 +1,126 @@
+package business.playback;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that reads the position of the song from a {@link PlaybackEngine} at a fixed rate and
+ * publishes it to its listeners.
+ * A single thread serves every listener, and it only samples while the song is playing.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class PositionSampler {
+
+    /**
+     * Engine whose position is sampled.
+     */
+    private final PlaybackEngine engine;
+    /**
+     * Milliseconds between two samples.
+     */
+    private long interval;
+    /**
+     * Thread that takes the samples.
+     */
+    private final ScheduledThreadPoolExecutor scheduler;
+    /**
+     * Listeners notified of every sample.
+     */
+    private final List<PositionListener> listeners;
+    /**
+     * Task taking the samples, null while sampling is stopped.
+     */
+    private ScheduledFuture<?> task;
+
+    /**
+     * Constructor method of PositionSampler.
+     *
+     * @param engine engine whose position is sampled.
+     * @param interval milliseconds between two samples.
+     */
+    public PositionSampler(PlaybackEngine engine, long interval) {
+        this.engine = engine;
+        this.interval = Math.max(10, interval);
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "position-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Method that adds a listener notified of every sample.
+     *
+     * @param listener listener to add.
+     */
+    public void subscribe(PositionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Method that removes a listener.
+     *
+     * @param listener listener to remove.
+     */
+    public void unsubscribe(PositionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Method that changes the time between two samples, taking effect right away if sampling.
+     *
+     * @param interval milliseconds between two samples.
+     */
+    public synchronized void setInterval(long interval) {
+        this.interval = Math.max(10, interval);
+        if (task != null) {
+            task.cancel(false);
+            task = scheduler.scheduleAtFixedRate(this::sample, this.interval, this.interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Method that starts sampling the position, if it is not being sampled already.
+     */
+    public synchronized void start() {
+        if (task == null) {
+            task = scheduler.scheduleAtFixedRate(this::sample, 0, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Method that stops sampling the position, after publishing it one last time.
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        sampleNow();
+    }
+
+    /**
+     * Method that publishes the current position right away, without waiting for the next sample,
+     * so the listeners see a change of position as soon as it happens.
+     */
+    public void sampleNow() {
+        scheduler.execute(this::sample);
+    }
+
+    /**
+     * Method that reads the position of the engine and publishes it to every listener.
+     */
+    private void sample() {
+        long position = engine.getPosition();
+        for (PositionListener listener : listeners) {
+            listener.positionChanged(position);
+        }
+    }
+}
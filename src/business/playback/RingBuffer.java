@@ -0,0 +1,147 @@
+package business.playback;
+
+/**
+ * Class that holds a fixed amount of decoded audio between the thread that decodes a song
+ * and the thread that writes it to the audio line.
+ * Writers block while the buffer is full and readers while it is empty, so the memory used
+ * by a song does not depend on its length.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+class RingBuffer {
+
+    /**
+     * Value returned by {@link #read} once the end of the song has been read.
+     */
+    static final int END = -1;
+
+    /**
+     * Bytes stored in the buffer.
+     */
+    private final byte[] data;
+    /**
+     * Size of an audio frame in bytes, and number of bytes of the array in use, a multiple of it.
+     */
+    private int frameSize;
+    private int capacity;
+    /**
+     * Position of the next byte to read and number of bytes stored.
+     */
+    private int head;
+    private int size;
+    /**
+     * Whether the writer has reached the end of the song.
+     */
+    private boolean ended;
+    /**
+     * Number of times the buffer has been cleared, used to drop writes of data that is no longer wanted.
+     */
+    private long generation;
+
+    /**
+     * Constructor method of RingBuffer.
+     *
+     * @param capacity maximum number of bytes stored.
+     */
+    RingBuffer(int capacity) {
+        data = new byte[capacity];
+        clear(1);
+    }
+
+    /**
+     * Method that returns the current generation of the buffer, which writers must pass to {@link #write}.
+     *
+     * @return the generation.
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Method that appends bytes to the buffer, waiting while it is full.
+     * The bytes are dropped if the buffer is cleared before they fit.
+     *
+     * @param expectedGeneration generation the bytes belong to.
+     * @param bytes array with the bytes to append.
+     * @param offset offset of the first byte in the array.
+     * @param length number of bytes to append.
+     * @return false if the buffer was cleared and the bytes were not appended.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    synchronized boolean write(long expectedGeneration, byte[] bytes, int offset, int length) throws InterruptedException {
+        while (length > 0) {
+            while (size == capacity && generation == expectedGeneration) {
+                wait();
+            }
+            if (generation != expectedGeneration) {
+                return false;
+            }
+            int tail = (head + size) % capacity;
+            int count = Math.min(length, Math.min(capacity - size, capacity - tail));
+            System.arraycopy(bytes, offset, data, tail, count);
+            size += count;
+            offset += count;
+            length -= count;
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Method that marks the end of the song, once the bytes already written are read.
+     *
+     * @param expectedGeneration generation the end belongs to.
+     */
+    synchronized void end(long expectedGeneration) {
+        if (generation == expectedGeneration) {
+            ended = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Method that takes whole frames from the buffer, waiting while it is empty.
+     *
+     * @param expectedGeneration generation the reader expects the bytes to belong to.
+     * @param bytes array the bytes are copied to.
+     * @param length maximum number of bytes to take.
+     * @return number of bytes taken, 0 if the buffer was cleared in the meantime,
+     *         or {@link #END} if the end of the song has been reached.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    synchronized int read(long expectedGeneration, byte[] bytes, int length) throws InterruptedException {
+        while (size < frameSize && !ended && generation == expectedGeneration) {
+            wait();
+        }
+        if (generation != expectedGeneration) {
+            return 0;
+        }
+        if (size < frameSize) {
+            ended = false;
+            return END;
+        }
+        int count = Math.min(length, Math.min(size, capacity - head));
+        count -= count % frameSize;
+        System.arraycopy(data, head, bytes, 0, count);
+        head = (head + count) % capacity;
+        size -= count;
+        notifyAll();
+        return count;
+    }
+
+    /**
+     * Method that drops every byte of the buffer and starts a new generation.
+     *
+     * @param frameSize size in bytes of the audio frames that will be stored.
+     */
+    synchronized void clear(int frameSize) {
+        this.frameSize = frameSize;
+        this.capacity = data.length - data.length % frameSize;
+        head = 0;
+        size = 0;
+        ended = false;
+        generation++;
+        notifyAll();
+    }
+}
@@ -0,0 +1,631 @@
+package business.playback;
+
+import javax.sound.sampled.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Playback engine that streams songs to a {@link SourceDataLine}.
+ * A decoder thread reads the song into a small {@link RingBuffer} and a writer thread feeds
+ * the line from it, so playback starts as soon as the first bytes are decoded and the memory
+ * used does not depend on the length of the song.
+ * Seeking forward skips the stream, and seeking backward rewinds it when it supports marks
+ * or reopens the song from its source otherwise.
+ * The head of the next song can be decoded in advance, and when a song follows another one
+ * with the same format it is written to the line right after it, without any gap.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class StreamingEngine implements PlaybackEngine {
+
+    /**
+     * Logger used to report playback problems.
+     */
+    private static final Logger LOGGER = Logger.getLogger(StreamingEngine.class.getName());
+    /**
+     * Bytes of decoded audio kept ahead of the line.
+     */
+    private static final int RING_BUFFER_BYTES = 64 * 1024;
+    /**
+     * Bytes moved at a time between the stream, the ring buffer and the line.
+     */
+    private static final int CHUNK_BYTES = 8 * 1024;
+    /**
+     * Milliseconds of audio buffered by the line itself.
+     */
+    private static final int LINE_BUFFER_MILLIS = 100;
+    /**
+     * Maximum bytes of the next song decoded in advance.
+     */
+    private static final int PREFETCH_BYTES = 256 * 1024;
+
+    /**
+     * Buffer between the decoder and the writer threads.
+     */
+    private final RingBuffer ring;
+    /**
+     * Lock guarding the stream of the song, and condition signalled when there is a stream to decode.
+     */
+    private final ReentrantLock streamLock;
+    private final Condition streamReady;
+    /**
+     * Monitor the writer waits on while the song is paused.
+     */
+    private final Object pauseLock;
+    /**
+     * Source, stream and format of the current song, guarded by the stream lock.
+     */
+    private AudioSource source;
+    private AudioInputStream stream;
+    private AudioFormat format;
+    /**
+     * Next frame of the song to be read from the stream, guarded by the stream lock.
+     */
+    private long streamFrame;
+    /**
+     * Whether the whole stream has been read, guarded by the stream lock.
+     */
+    private boolean streamEnded;
+    /**
+     * Line the audio is written to, kept open between songs with the same format.
+     */
+    private volatile SourceDataLine line;
+    /**
+     * Frame of the song the line started playing from, and frame position of the line at that moment.
+     */
+    private volatile long startFrame;
+    private volatile long lineOffset;
+    /**
+     * Whether the song is playing.
+     */
+    private volatile boolean running;
+    /**
+     * Whether the current song has been completely written to the line, which may still be playing its last samples.
+     */
+    private volatile boolean finished;
+    /**
+     * Executor that decodes the head of the next song.
+     */
+    private final ExecutorService prefetcher;
+    /**
+     * Source of the next song and the task decoding its head, null if nothing is being prefetched.
+     */
+    private AudioSource nextSource;
+    private Future<AudioInputStream> nextAudio;
+    /**
+     * Listener notified when a song reaches its end.
+     */
+    private volatile LongConsumer endListener;
+    /**
+     * Token of the song being played, given back to the listener when it ends.
+     */
+    private long token;
+
+    /**
+     * Constructor method of StreamingEngine.
+     * Starts the decoder and writer threads, which wait until a song is opened.
+     */
+    public StreamingEngine() {
+        ring = new RingBuffer(RING_BUFFER_BYTES);
+        streamLock = new ReentrantLock();
+        streamReady = streamLock.newCondition();
+        pauseLock = new Object();
+        prefetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "playback-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread decoder = new Thread(this::decode, "playback-decoder");
+        decoder.setDaemon(true);
+        decoder.start();
+
+        Thread writer = new Thread(this::write, "playback-writer");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MAX_PRIORITY);
+        writer.start();
+    }
+
+    /**
+     * Method that opens a song and starts playing it.
+     * The line is reused if the song has the same format as the previous one, and if the previous
+     * song ended on its own, the new one is queued behind its last samples instead of replacing them.
+     * The head decoded in advance is used if the song is the one that was prefetched.
+     *
+     * @param source source of the audio data of the song.
+     * @param token token given back to the end listener when the song ends.
+     * @throws IOException if the audio data could not be read.
+     * @throws LineUnavailableException if no line is available for the format of the song.
+     */
+    @Override
+    public void open(AudioSource source, long token) throws IOException, LineUnavailableException {
+        boolean previousFinished;
+        // the writer can not report the end of the previous song between the two
+        streamLock.lock();
+        try {
+            previousFinished = finished;
+            stop();
+        } finally {
+            streamLock.unlock();
+        }
+
+        AudioInputStream audio = takePrefetched(source);
+        if (audio == null) {
+            audio = toPcm(source.open());
+        }
+        streamLock.lock();
+        try {
+            AudioFormat newFormat = audio.getFormat();
+            boolean gapless = previousFinished && line != null && newFormat.matches(format);
+            if (line == null || !newFormat.matches(format)) {
+                openLine(newFormat);
+            }
+            format = newFormat;
+            this.source = source;
+            this.token = token;
+            stream = audio;
+            markStart();
+            streamFrame = 0;
+            streamEnded = false;
+            restartFrom(0, gapless);
+            streamReady.signalAll();
+        } catch (LineUnavailableException e) {
+            audio.close();
+            throw e;
+        } finally {
+            streamLock.unlock();
+        }
+
+        start();
+    }
+
+    /**
+     * Method that starts decoding the head of the next song in the background, replacing any previous prefetch.
+     *
+     * @param source source of the audio data of the next song.
+     */
+    @Override
+    public void prefetch(AudioSource source) {
+        cancelPrefetch();
+        HeadTask task = new HeadTask(source);
+        prefetcher.execute(task);
+        synchronized (this) {
+            nextSource = source;
+            nextAudio = task;
+        }
+    }
+
+    /**
+     * Method that cancels the prefetch of the next song and frees what was decoded.
+     * A head decoded after the cancellation is closed by its own task.
+     */
+    @Override
+    public void cancelPrefetch() {
+        Future<AudioInputStream> task;
+        synchronized (this) {
+            task = nextAudio;
+            nextSource = null;
+            nextAudio = null;
+        }
+        if (task != null && !task.cancel(true)) {
+            prefetcher.execute(() -> {
+                try {
+                    task.get().close();
+                } catch (InterruptedException | ExecutionException | IOException ignored) {}
+            });
+        }
+    }
+
+    /**
+     * Method that returns the stream prefetched for the given source, cancelling any other prefetch.
+     *
+     * @param source source of the song being opened.
+     * @return the stream with its head already decoded, null if the source was not prefetched.
+     */
+    private AudioInputStream takePrefetched(AudioSource source) {
+        Future<AudioInputStream> task;
+        synchronized (this) {
+            if (nextSource != source) {
+                task = null;
+            }
+            else {
+                task = nextAudio;
+                nextSource = null;
+                nextAudio = null;
+            }
+        }
+        if (task == null) {
+            cancelPrefetch();
+            return null;
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Method that decodes the head of a song into memory.
+     *
+     * @param audio stream of the song.
+     * @return a stream that serves the decoded head first and then the rest of the song.
+     * @throws IOException if the song could not be decoded.
+     */
+    private static AudioInputStream readHead(AudioInputStream audio) throws IOException {
+        int frameSize = Math.max(1, audio.getFormat().getFrameSize());
+        byte[] head = new byte[PREFETCH_BYTES - PREFETCH_BYTES % frameSize];
+        int length = 0;
+        try {
+            while (length < head.length && !Thread.currentThread().isInterrupted()) {
+                int read = audio.read(head, length, head.length - length);
+                if (read < 0) {
+                    break;
+                }
+                length += read;
+            }
+        } catch (IOException e) {
+            audio.close();
+            throw e;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            audio.close();
+            throw new IOException("Prefetch cancelled");
+        }
+        return new AudioInputStream(new SequenceInputStream(new ByteArrayInputStream(head, 0, length), audio),
+                audio.getFormat(), audio.getFrameLength());
+    }
+
+    /**
+     * Method that resumes the song.
+     */
+    @Override
+    public void start() {
+        SourceDataLine current = line;
+        if (current == null) {
+            return;
+        }
+        synchronized (pauseLock) {
+            running = true;
+            current.start();
+            pauseLock.notifyAll();
+        }
+    }
+
+    /**
+     * Method that pauses the song.
+     */
+    @Override
+    public void pause() {
+        SourceDataLine current = line;
+        synchronized (pauseLock) {
+            running = false;
+            if (current != null) {
+                current.stop();
+            }
+        }
+    }
+
+    /**
+     * Method that stops the song and closes its stream. The line stays open for the next song.
+     * If the song had already been completely written, the line is left playing its last samples.
+     */
+    @Override
+    public void stop() {
+        streamLock.lock();
+        try {
+            boolean playingTail = finished;
+            finished = false;
+            if (playingTail) {
+                running = false;
+            }
+            else {
+                pause();
+            }
+            ring.clear(format == null ? 1 : format.getFrameSize());
+            if (line != null && !playingTail) {
+                line.flush();
+            }
+            closeStream();
+            source = null;
+        } finally {
+            streamLock.unlock();
+        }
+    }
+
+    /**
+     * Method that returns whether the song is playing.
+     *
+     * @return true if the song is playing.
+     */
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Method that moves the song to the given position.
+     * The buffered audio is dropped and the stream is skipped, or rewound if the position is behind it.
+     *
+     * @param microseconds position to move to.
+     */
+    @Override
+    public void setPosition(long microseconds) {
+        streamLock.lock();
+        try {
+            if (stream == null) {
+                return;
+            }
+            long target = Math.max(0, (long) (microseconds / 1_000_000D * format.getFrameRate()));
+            long frameLength = stream.getFrameLength();
+            if (frameLength != AudioSystem.NOT_SPECIFIED) {
+                target = Math.min(target, frameLength);
+            }
+
+            try {
+                if (target < streamFrame) {
+                    if (stream.markSupported()) {
+                        stream.reset();
+                    }
+                    else {
+                        closeStream();
+                        stream = toPcm(source.open());
+                        markStart();
+                    }
+                    streamFrame = 0;
+                }
+                long remaining = (target - streamFrame) * format.getFrameSize();
+                while (remaining > 0) {
+                    long skipped = stream.skip(remaining);
+                    if (skipped <= 0) {
+                        break;
+                    }
+                    remaining -= skipped;
+                }
+                streamFrame = target - remaining / format.getFrameSize();
+                streamEnded = false;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to seek the song, skipping to its end", e);
+                streamEnded = true;
+            }
+
+            finished = false;
+            restartFrom(streamFrame, false);
+            if (streamEnded) {
+                ring.end(ring.getGeneration());
+            }
+            streamReady.signalAll();
+        } finally {
+            streamLock.unlock();
+        }
+    }
+
+    /**
+     * Method that returns the position of the song, from the frames actually played by the line.
+     *
+     * @return position in microseconds.
+     */
+    @Override
+    public long getPosition() {
+        SourceDataLine current = line;
+        AudioFormat currentFormat = format;
+        if (current == null || currentFormat == null) {
+            return 0;
+        }
+        long frame = Math.max(0, startFrame + current.getLongFramePosition() - lineOffset);
+        return (long) (frame * 1_000_000D / currentFormat.getFrameRate());
+    }
+
+    /**
+     * Method that sets the listener notified when a song reaches its end.
+     *
+     * @param listener listener to notify.
+     */
+    @Override
+    public void setEndListener(LongConsumer listener) {
+        endListener = listener;
+    }
+
+    /**
+     * Method that drops the buffered audio and makes the position count from the given frame.
+     * It must be called with the stream lock held.
+     *
+     * @param frame frame of the song the stream is at.
+     * @param afterBuffered true to keep the audio already in the line, so the position only starts
+     *                      counting once it has been played.
+     */
+    private void restartFrom(long frame, boolean afterBuffered) {
+        ring.clear(format.getFrameSize());
+        long buffered = 0;
+        if (afterBuffered) {
+            buffered = (line.getBufferSize() - line.available()) / format.getFrameSize();
+        }
+        else {
+            line.flush();
+        }
+        startFrame = frame;
+        lineOffset = line.getLongFramePosition() + buffered;
+    }
+
+    /**
+     * Method that opens a new line for the given format, closing the previous one.
+     * It must be called with the stream lock held.
+     *
+     * @param newFormat format of the audio that will be written to the line.
+     * @throws LineUnavailableException if no line is available for the format.
+     */
+    private void openLine(AudioFormat newFormat) throws LineUnavailableException {
+        if (line != null) {
+            line.close();
+            line = null;
+        }
+        SourceDataLine newLine = AudioSystem.getSourceDataLine(newFormat);
+        int frameSize = newFormat.getFrameSize();
+        int bufferFrames = Math.max(1, (int) (newFormat.getFrameRate() * LINE_BUFFER_MILLIS / 1000));
+        newLine.open(newFormat, Math.max(bufferFrames * frameSize, CHUNK_BYTES - CHUNK_BYTES % frameSize));
+        line = newLine;
+    }
+
+    /**
+     * Method that closes the stream of the current song, ignoring any error.
+     * It must be called with the stream lock held.
+     */
+    private void closeStream() {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ignored) {}
+            stream = null;
+        }
+    }
+
+    /**
+     * Method that marks the start of the current stream, if it supports it, so backward seeks
+     * can rewind it instead of opening the song again.
+     */
+    private void markStart() {
+        if (stream.markSupported()) {
+            stream.mark(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Method that converts the given stream to PCM if it is encoded in another format.
+     *
+     * @param audio stream to convert.
+     * @return a PCM stream.
+     */
+    private static AudioInputStream toPcm(AudioInputStream audio) {
+        AudioFormat source = audio.getFormat();
+        AudioFormat.Encoding encoding = source.getEncoding();
+        if (encoding.equals(AudioFormat.Encoding.PCM_SIGNED) || encoding.equals(AudioFormat.Encoding.PCM_UNSIGNED)) {
+            return audio;
+        }
+        AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+                source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+        return AudioSystem.getAudioInputStream(pcm, audio);
+    }
+
+    /**
+     * Decoder thread method that reads the current song into the ring buffer.
+     */
+    @SuppressWarnings("InfiniteLoopStatement")
+    private void decode() {
+        byte[] chunk = new byte[CHUNK_BYTES];
+
+        while (true) {
+            long generation;
+            int read;
+
+            streamLock.lock();
+            try {
+                while (stream == null || streamEnded) {
+                    streamReady.awaitUninterruptibly();
+                }
+                generation = ring.getGeneration();
+                try {
+                    read = stream.read(chunk, 0, chunk.length - chunk.length % format.getFrameSize());
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to decode the song, skipping to its end", e);
+                    read = -1;
+                }
+                if (read < 0) {
+                    streamEnded = true;
+                    ring.end(generation);
+                    continue;
+                }
+                streamFrame += read / format.getFrameSize();
+            } finally {
+                streamLock.unlock();
+            }
+
+            try {
+                ring.write(generation, chunk, 0, read);
+            } catch (InterruptedException ignored) {}
+        }
+    }
+
+    /**
+     * Writer thread method that feeds the line from the ring buffer and reports the end of each song
+     * as soon as it has been completely written.
+     */
+    @SuppressWarnings("InfiniteLoopStatement")
+    private void write() {
+        byte[] chunk = new byte[CHUNK_BYTES];
+
+        while (true) {
+            try {
+                long generation = ring.getGeneration();
+                int read = ring.read(generation, chunk, chunk.length);
+                SourceDataLine current = line;
+
+                if (read > 0 && current != null && ring.getGeneration() == generation) {
+                    current.write(chunk, 0, read);
+                }
+                else if (read == RingBuffer.END && current != null) {
+                    // a paused song must not end until it is resumed
+                    synchronized (pauseLock) {
+                        while (!running && ring.getGeneration() == generation) {
+                            pauseLock.wait(100);
+                        }
+                    }
+                    // the line is not drained, so the next song can be queued right behind the last samples
+                    boolean ended = false;
+                    long endedToken = 0;
+                    streamLock.lock();
+                    try {
+                        // checked under the lock, so a song opened meanwhile is neither marked nor reported
+                        if (ring.getGeneration() == generation) {
+                            finished = true;
+                            ended = true;
+                            endedToken = token;
+                        }
+                    } finally {
+                        streamLock.unlock();
+                    }
+                    LongConsumer listener = endListener;
+                    if (ended && listener != null) {
+                        listener.accept(endedToken);
+                    }
+                }
+            } catch (InterruptedException ignored) {}
+        }
+    }
+
+    /**
+     * Class that decodes the head of the next song, and closes it if the prefetch was cancelled
+     * while it was being decoded, since nobody will ever take it.
+     */
+    private static class HeadTask extends FutureTask<AudioInputStream> {
+
+        private HeadTask(AudioSource source) {
+            super(() -> readHead(toPcm(source.open())));
+        }
+
+        @Override
+        protected void set(AudioInputStream audio) {
+            super.set(audio);
+            // the result is dropped if the task was cancelled first, otherwise cancel() returns false and its caller closes it
+            if (isCancelled()) {
+                try {
+                    audio.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+}
@@ -2,10 +2,14 @@ package persistence;
 
 import persistence.exceptions.PersistenceException;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * DAO interface to obtain Lyrics that defines the methods that must be implemented by the persistence layer.
  */
 public interface LyricsDAO {
 
     String fetchLyrics(String artist, String title) throws PersistenceException;
+
+    CompletableFuture<String> fetchLyricsAsync(String artist, String title);
 }
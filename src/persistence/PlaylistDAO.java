@@ -13,8 +13,6 @@ public interface PlaylistDAO {
 
     void deletePlaylist(int playlistId) throws PersistenceException;
 
-    void deletePlaylistsByUser(String user) throws PersistenceException;
-
     boolean addSong(int playlistId, int songId) throws PersistenceException;
 
     void removeSong(int playlistId, int songId) throws PersistenceException;
@@ -23,5 +21,7 @@ public interface PlaylistDAO {
 
     List<Playlist> getPlaylists() throws PersistenceException;
 
+    List<Playlist> getPlaylistsByOwner(String owner) throws PersistenceException;
+
     Playlist getPlaylistWithSongs(int id) throws PersistenceException;
 }
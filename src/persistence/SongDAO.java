@@ -2,25 +2,29 @@ package persistence;
 
 import business.entities.Song;
 import persistence.exceptions.PersistenceException;
+import persistence.files.SongFile;
 
 import javax.sound.sampled.AudioInputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * DAO interface to manage {@link Song}  that defines the methods that must be implemented by the persistence layer.
  */
 public interface SongDAO {
-    void createSong(Song song, String songPath) throws PersistenceException;
+    SongFile importFile(String songPath, boolean keepCompressed) throws PersistenceException;
 
-    void deleteSong(int songId) throws PersistenceException;
+    void discardFile(SongFile file);
+
+    List<Integer> createSongs(List<Song> songs, List<SongFile> files) throws PersistenceException;
 
-    void deleteSongsByUser(String user) throws PersistenceException;
+    void deleteSong(int songId) throws PersistenceException;
 
     Song getSong(int id) throws PersistenceException;
 
-    List<Song> getSongs(String title) throws PersistenceException;
+    List<Song> searchSongs(String text, boolean prefix, int afterId, int limit) throws PersistenceException;
 
-    List<Song> getAllSongs() throws PersistenceException;
+    void forEachSong(Consumer<Song> action) throws PersistenceException;
 
     AudioInputStream getAudio(int songId) throws PersistenceException;
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package persistence;
 
+import business.entities.DeletionReport;
 import business.entities.User;
 import persistence.exceptions.PersistenceException;
 
@@ -9,7 +10,7 @@ import persistence.exceptions.PersistenceException;
 public interface UserDAO {
     void createUser(User user) throws PersistenceException;
 
-    boolean deleteUser(String username) throws PersistenceException;
+    DeletionReport deleteUser(String username) throws PersistenceException;
 
     User getUser(String user) throws PersistenceException;
 }
@@ -1,16 +1,21 @@
 package persistence.api;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 import persistence.LyricsDAO;
 import persistence.exceptions.PersistenceException;
 
-import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManagerFactory;
 import java.io.*;
-import java.net.URL;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -18,10 +23,24 @@ import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 /**
  * DAO class to obtain Lyrics from an external API.
+ * The address of the API is configurable, so it can also point to a local server over plain HTTP.
+ * Requests are sent without blocking through a single HTTP client that reuses its connections,
+ * at most a given number at a time, and requests for a song whose lyrics are already being fetched
+ * share the response of the first one.
  *
  * @author Group 6
  * @version 1.0
@@ -29,21 +48,80 @@ import java.util.Base64;
 public class APILyricsDAO implements LyricsDAO {
 
     /**
-     * SSL Socket Factory to establish a secure connection to the API.
+     * Address of the lyrics of a song, with a '%s' for the artist followed by one for the title.
      */
-    private SSLSocketFactory sslSocketFactory;
+    private final String urlFormat;
+    /**
+     * Maximum time to connect to the API and to receive a response.
+     */
+    private volatile Duration timeout;
+    /**
+     * Maximum number of requests sent at the same time.
+     */
+    private int maxRequests;
+    /**
+     * HTTP client that sends every request, keeping the connections to the API open between them.
+     */
+    private final HttpClient client;
+    /**
+     * Lyrics being fetched by song.
+     */
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    /**
+     * Requests waiting for another one to end, and number of requests being sent.
+     */
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+    private int running;
 
     /**
-     * Constructor method that generates the SSL Socket Factory to establish a secure connection to the API.
+     * Constructor method that prepares the HTTP client, trusting the certificate of the API if its address is secure.
      *
-     * @throws PersistenceException if there was an error in the secure connection process.
+     * @param urlFormat address of the lyrics of a song, with a '%s' for the artist followed by one for the title.
+     * @param timeout maximum time to connect to the API and to receive a response.
+     * @param maxRequests maximum number of requests sent at the same time.
+     * @throws PersistenceException if the timeout is not positive or there was an error in the secure connection process.
      */
-    public APILyricsDAO() throws PersistenceException {
-        generateSSLSocketFactory();
+    public APILyricsDAO(String urlFormat, Duration timeout, int maxRequests) throws PersistenceException {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new PersistenceException("The lyrics timeout must be positive");
+        }
+        this.urlFormat = urlFormat;
+        this.timeout = timeout;
+        this.maxRequests = Math.max(1, maxRequests);
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(timeout);
+        if (urlFormat.startsWith("https:")) {
+            builder.sslContext(generateSSLContext());
+        }
+        this.client = builder.build();
+    }
+
+    /**
+     * Method that changes the timeout of the requests and the number of requests sent at the same time.
+     * The time to connect keeps the value given when this DAO was created, and a timeout that is not
+     * positive is rejected, keeping the current one.
+     *
+     * @param timeout maximum time to receive a response.
+     * @param maxRequests maximum number of requests sent at the same time.
+     */
+    public void setLimits(Duration timeout, int maxRequests) {
+        if (!timeout.isNegative() && !timeout.isZero()) {
+            this.timeout = timeout;
+        }
+        List<Runnable> started = new ArrayList<>();
+        synchronized (waiting) {
+            this.maxRequests = Math.max(1, maxRequests);
+            while (running < this.maxRequests && !waiting.isEmpty()) {
+                running++;
+                started.add(waiting.poll());
+            }
+        }
+        started.forEach(Runnable::run);
     }
 
     /**
-     * Method that fetches the lyrics of a given song.
+     * Method that fetches the lyrics of a given song, waiting for the response.
      *
      * @param artist artist of the song.
      * @param title title of the song.
@@ -52,48 +130,185 @@ public class APILyricsDAO implements LyricsDAO {
      */
     @Override
     public String fetchLyrics(String artist, String title) throws PersistenceException {
+        try {
+            return fetchLyricsAsync(artist, title).get();
+        } catch (ExecutionException e) {
+            throw toPersistenceException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while fetching the lyrics", e);
+        }
+    }
+
+    /**
+     * Method that fetches the lyrics of a given song without waiting for the response.
+     *
+     * @param artist artist of the song.
+     * @param title title of the song.
+     * @return future lyrics of the song, null if not found, or failed with a PersistenceException.
+     */
+    @Override
+    public CompletableFuture<String> fetchLyricsAsync(String artist, String title) {
+        String key = artist + '\n' + title;
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing.copy();
+        }
 
         try {
-            URL url = new URL("https://balandrau.salle.url.edu/dpoo/lyrics/%s/%s"
-                    .formatted(
-                            artist.replaceAll(" ", "%20"),
-                            title.replaceAll(" ", "%20")
-                    )
-            );
-            HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-            connection.setSSLSocketFactory(sslSocketFactory);
-
-            switch (connection.getResponseCode()) {
-                case 200 -> {
+            URI uri = URI.create(urlFormat.formatted(encode(artist), encode(title)));
+            limit(() -> send(uri)).whenComplete((lyrics, error) -> {
+                inFlight.remove(key, created);
+                if (error == null) {
+                    created.complete(lyrics);
                 }
-                case 404 -> {
-                    return null;
+                else {
+                    created.completeExceptionally(toPersistenceException(error));
                 }
-                default -> throw new IOException(connection.getResponseMessage());
+            });
+        } catch (IllegalArgumentException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(new PersistenceException("Invalid lyrics address", e));
+        }
+        // each caller gets its own copy, so cancelling it does not affect the others
+        return created.copy();
+    }
+
+    /**
+     * Method that sends the request for the lyrics of a song.
+     *
+     * @param uri address of the lyrics.
+     * @return future lyrics of the song, null if not found.
+     */
+    private CompletableFuture<String> send(URI uri) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenApply(this::readLyrics);
+    }
+
+    /**
+     * Method that reads the lyrics from a response of the API.
+     *
+     * @param response response of the API.
+     * @return lyrics of the song, null if not found.
+     */
+    private String readLyrics(HttpResponse<String> response) {
+        switch (response.statusCode()) {
+            case 200 -> {
             }
+            case 404 -> {
+                return null;
+            }
+            default -> throw new CompletionException(new PersistenceException(
+                    "The lyrics API answered with status " + response.statusCode()));
+        }
+        try {
+            JsonObject responseObj = JsonParser.parseString(response.body()).getAsJsonObject();
+            JsonElement lyrics = responseObj.get("lyrics");
+            return lyrics == null || lyrics.isJsonNull() ? null : lyrics.getAsString();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new CompletionException(new PersistenceException("Invalid response from the lyrics API", e));
+        }
+    }
 
-            StringBuilder response = new StringBuilder();
+    /**
+     * Method that sends a request as soon as fewer than the maximum number of requests are being sent.
+     *
+     * @param request sends the request.
+     * @return future result of the request.
+     */
+    private CompletableFuture<String> limit(Supplier<CompletableFuture<String>> request) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<String> sent;
+            try {
+                sent = request.get();
+            } catch (RuntimeException e) {
+                // the request was never sent, so its slot is given back right away
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            sent.whenComplete((lyrics, error) -> {
+                release();
+                if (error == null) {
+                    result.complete(lyrics);
+                }
+                else {
+                    result.completeExceptionally(error);
+                }
+            });
+        };
+        boolean startNow;
+        synchronized (waiting) {
+            startNow = running < maxRequests;
+            if (startNow) {
+                running++;
+            }
+            else {
+                waiting.add(start);
+            }
+        }
+        if (startNow) {
+            start.run();
+        }
+        return result;
+    }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+    /**
+     * Method that starts the next waiting request once a request ends.
+     */
+    private void release() {
+        Runnable next;
+        synchronized (waiting) {
+            next = waiting.poll();
+            if (next == null) {
+                running--;
             }
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
 
-            JsonObject responseObj = JsonParser.parseString(response.toString()).getAsJsonObject();
-            return responseObj.get("lyrics").getAsString();
+    /**
+     * Method that encodes a part of the address of the lyrics.
+     *
+     * @param value artist or title of the song.
+     * @return value encoded for the path of an address.
+     */
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
 
-        } catch (IOException e) {
-            throw new PersistenceException("An error occurred while fetching the lyrics", e);
+    /**
+     * Method that turns the error of a failed request into a PersistenceException.
+     *
+     * @param error error of the request.
+     * @return PersistenceException describing the error.
+     */
+    private static PersistenceException toPersistenceException(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
         }
+        if (error instanceof PersistenceException persistenceException) {
+            return persistenceException;
+        }
+        return new PersistenceException("An error occurred while fetching the lyrics", error);
     }
 
     /**
      * Method that marks a certificate as trusted to establish a secure connection to the API.
      *
+     * @return SSLContext that trusts the certificate.
      * @throws PersistenceException if there was an error reading or processing the certificate.
      */
-    private void generateSSLSocketFactory() throws PersistenceException {
+    private SSLContext generateSSLContext() throws PersistenceException {
 
         try {
 
@@ -111,7 +326,7 @@ public class APILyricsDAO implements LyricsDAO {
 
             SSLContext context = SSLContext.getInstance("TLS");
             context.init(null, tmf.getTrustManagers(), null);
-            this.sslSocketFactory = context.getSocketFactory();
+            return context;
 
         } catch (NoSuchAlgorithmException | KeyStoreException | CertificateException | IOException |
                  KeyManagementException e) {
@@ -127,15 +342,15 @@ public class APILyricsDAO implements LyricsDAO {
      */
     private String readCertificate() throws IOException {
 
-        BufferedReader certReader = new BufferedReader(new InputStreamReader(new FileInputStream("data/api_cert.crt")));
-
-        StringBuilder builder = new StringBuilder();
-        String line;
-        while ((line = certReader.readLine()) != null) {
-            if (!line.startsWith("-----")) {
-                builder.append(line);
+        try (BufferedReader certReader = new BufferedReader(new InputStreamReader(new FileInputStream("data/api_cert.crt")))) {
+            StringBuilder builder = new StringBuilder();
+            String line;
+            while ((line = certReader.readLine()) != null) {
+                if (!line.startsWith("-----")) {
+                    builder.append(line);
+                }
             }
+            return builder.toString();
         }
-        return builder.toString();
     }
-}
\ No newline at end of file
+}
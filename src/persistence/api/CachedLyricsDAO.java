@@ -0,0 +1,352 @@
+package persistence.api;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import persistence.LyricsDAO;
+import persistence.exceptions.PersistenceException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * DAO class that caches the lyrics obtained from another LyricsDAO.
+ * The most recently used lyrics are kept in memory, and every lyrics fetched is also stored
+ * in a file so it survives restarts. Songs without lyrics are cached too, for a shorter time,
+ * so they are not requested again every time their details are opened.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class CachedLyricsDAO implements LyricsDAO {
+
+    private static final Logger LOGGER = Logger.getLogger(CachedLyricsDAO.class.getName());
+
+    /**
+     * LyricsDAO the lyrics that are not cached are fetched from.
+     */
+    private final LyricsDAO source;
+    /**
+     * Directory where the lyrics files are stored.
+     */
+    private final Path directory;
+    /**
+     * Maximum number of lyrics kept in memory.
+     */
+    private volatile int maxEntries;
+    /**
+     * Time lyrics are kept before being fetched again, and the same for songs without lyrics.
+     */
+    private volatile Duration ttl;
+    private volatile Duration negativeTtl;
+    /**
+     * Lyrics kept in memory by song, from the least to the most recently used.
+     */
+    private final LinkedHashMap<String, Entry> memory;
+    /**
+     * Number of lookups served from memory, from the files, and from the source.
+     */
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor method of CachedLyricsDAO.
+     *
+     * @param source LyricsDAO the lyrics that are not cached are fetched from.
+     * @param directory directory where the lyrics files are stored.
+     * @param maxEntries maximum number of lyrics kept in memory.
+     * @param ttl time lyrics are kept before being fetched again.
+     * @param negativeTtl time songs without lyrics are kept before being fetched again.
+     * @throws PersistenceException if the directory could not be created.
+     */
+    public CachedLyricsDAO(LyricsDAO source, Path directory, int maxEntries, Duration ttl, Duration negativeTtl)
+            throws PersistenceException {
+        this.source = source;
+        this.directory = directory;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to create the lyrics cache directory", e);
+        }
+    }
+
+    /**
+     * Method that returns the lyrics of a given song, from memory or from its file if they are cached
+     * and have not expired, or from the source otherwise.
+     *
+     * @param artist artist of the song.
+     * @param title title of the song.
+     * @return lyrics of the song, null if not found.
+     * @throws PersistenceException if the lyrics are not cached and could not be fetched.
+     */
+    @Override
+    public String fetchLyrics(String artist, String title) throws PersistenceException {
+        String key = getKey(artist, title);
+        Entry entry = findInMemory(key);
+        if (entry == null) {
+            entry = findInFile(key);
+        }
+        if (entry != null) {
+            return entry.lyrics;
+        }
+
+        misses.incrementAndGet();
+        return store(key, source.fetchLyrics(artist, title));
+    }
+
+    /**
+     * Method that returns the lyrics of a given song without waiting for them. Lyrics kept in memory are
+     * returned right away, while the files and the source are read in the background.
+     *
+     * @param artist artist of the song.
+     * @param title title of the song.
+     * @return future lyrics of the song, null if not found, or failed with a PersistenceException.
+     */
+    @Override
+    public CompletableFuture<String> fetchLyricsAsync(String artist, String title) {
+        String key = getKey(artist, title);
+        Entry entry = findInMemory(key);
+        if (entry != null) {
+            return CompletableFuture.completedFuture(entry.lyrics);
+        }
+        return CompletableFuture.supplyAsync(() -> findInFile(key))
+                .thenCompose(stored -> {
+                    if (stored != null) {
+                        return CompletableFuture.completedFuture(stored.lyrics);
+                    }
+                    misses.incrementAndGet();
+                    return source.fetchLyricsAsync(artist, title).thenApply(lyrics -> store(key, lyrics));
+                });
+    }
+
+    /**
+     * Method that changes the number of lyrics kept in memory and how long lyrics are cached.
+     * Lyrics already cached keep the expiry they were stored with.
+     *
+     * @param maxEntries maximum number of lyrics kept in memory.
+     * @param ttl time lyrics are kept before being fetched again.
+     * @param negativeTtl time songs without lyrics are kept before being fetched again.
+     */
+    public void setLimits(int maxEntries, Duration ttl, Duration negativeTtl) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        synchronized (memory) {
+            while (memory.size() > this.maxEntries) {
+                memory.remove(memory.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * Method that returns the fraction of the lookups that did not need to fetch the lyrics.
+     *
+     * @return hit ratio between 0 and 1.
+     */
+    public double getHitRatio() {
+        long hits = memoryHits.get() + diskHits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Method that returns the number of lookups served from memory.
+     *
+     * @return number of memory hits.
+     */
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    /**
+     * Method that returns the number of lookups served from the lyrics files.
+     *
+     * @return number of disk hits.
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * Method that returns the number of lookups that fetched the lyrics from the source.
+     *
+     * @return number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Method that looks for the lyrics of a song in memory.
+     *
+     * @param key key of the song.
+     * @return lyrics of the song, null if they are not kept or have expired.
+     */
+    private Entry findInMemory(String key) {
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+        }
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        memoryHits.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Method that looks for the lyrics of a song in its file, keeping them in memory if found.
+     *
+     * @param key key of the song.
+     * @return lyrics of the song, null if there is no file or it has expired.
+     */
+    private Entry findInFile(String key) {
+        Entry entry = readFile(key);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        diskHits.incrementAndGet();
+        remember(key, entry);
+        return entry;
+    }
+
+    /**
+     * Method that caches the lyrics fetched from the source, in memory and in their file.
+     *
+     * @param key key of the song.
+     * @param lyrics lyrics of the song, null if it has none.
+     * @return the same lyrics.
+     */
+    private String store(String key, String lyrics) {
+        Entry entry = new Entry(lyrics, System.currentTimeMillis() + (lyrics == null ? negativeTtl : ttl).toMillis());
+        remember(key, entry);
+        writeFile(key, entry);
+        LOGGER.log(Level.FINE, "Lyrics cache hit ratio {0} ({1} from memory, {2} from disk, {3} fetched)",
+                new Object[]{getHitRatio(), memoryHits.get(), diskHits.get(), misses.get()});
+        return lyrics;
+    }
+
+    /**
+     * Method that keeps lyrics in memory, forgetting the least recently used ones if there are too many.
+     *
+     * @param key key of the song.
+     * @param entry lyrics of the song.
+     */
+    private void remember(String key, Entry entry) {
+        synchronized (memory) {
+            memory.put(key, entry);
+            while (memory.size() > maxEntries) {
+                memory.remove(memory.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * Method that reads the lyrics file of a song.
+     *
+     * @param key key of the song.
+     * @return lyrics of the song, null if there is no valid file.
+     */
+    private Entry readFile(String key) {
+        Path file = directory.resolve(key + ".json");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            JsonObject json = JsonParser.parseString(Files.readString(file, StandardCharsets.UTF_8)).getAsJsonObject();
+            JsonElement lyrics = json.get("lyrics");
+            return new Entry(lyrics == null || lyrics.isJsonNull() ? null : lyrics.getAsString(), json.get("expires").getAsLong());
+        } catch (IOException | JsonParseException | IllegalStateException | NullPointerException e) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable lyrics file " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Method that stores the lyrics of a song in its file, replacing it atomically so readers never see half a file.
+     * A failure is only logged, as the lyrics are still returned and kept in memory.
+     *
+     * @param key key of the song.
+     * @param entry lyrics of the song.
+     */
+    private void writeFile(String key, Entry entry) {
+        JsonObject json = new JsonObject();
+        json.addProperty("lyrics", entry.lyrics);
+        json.addProperty("expires", entry.expires);
+        Path tmpFile = null;
+        try {
+            tmpFile = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(tmpFile, json.toString(), StandardCharsets.UTF_8);
+            Files.move(tmpFile, directory.resolve(key + ".json"), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to store the lyrics file of " + key, e);
+            if (tmpFile != null) {
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    /**
+     * Method that builds the key that identifies the lyrics of a song, also used as the name of its file.
+     *
+     * @param artist artist of the song.
+     * @param title title of the song.
+     * @return hexadecimal hash of the artist and title, ignoring case.
+     */
+    private static String getKey(String artist, String title) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((artist + '\n' + title).toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Class that holds the cached lyrics of a song.
+     */
+    private static class Entry {
+
+        /**
+         * Lyrics of the song, null if it has none.
+         */
+        private final String lyrics;
+        /**
+         * Time in milliseconds when the lyrics expire.
+         */
+        private final long expires;
+
+        private Entry(String lyrics, long expires) {
+            this.lyrics = lyrics;
+            this.expires = expires;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expires;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package persistence.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class that keeps a bounded set of connections to the database so that several DAO calls
+ * can run at the same time without sharing a single session.
+ * Connections are validated before being handed out, evicted after staying idle for too long
+ * and reported if they are not returned in time.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+class ConnectionPool {
+
+    /**
+     * Logger used to report pool problems.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+    /**
+     * Seconds between two runs of the maintenance task.
+     */
+    private static final long MAINTENANCE_PERIOD_SECONDS = 10;
+    /**
+     * Milliseconds after a connection is returned during which it is trusted without validation.
+     */
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    /**
+     * Connection parameters.
+     */
+    private final String url;
+    private final String user;
+    private final String password;
+    /**
+     * Pool limits and timeouts.
+     */
+    private int minSize;
+    private int maxSize;
+    private volatile long idleTimeoutMillis;
+    private volatile long borrowTimeoutNanos;
+    private volatile int validationTimeoutSeconds;
+    private volatile long leakThresholdMillis;
+    private final int statementCacheSize;
+    /**
+     * Idle connections, most recently used first.
+     */
+    private final Deque<PooledConnection> idle;
+    /**
+     * Connections currently handed out.
+     */
+    private final Set<PooledConnection> borrowed;
+    /**
+     * Lock and condition guarding the pool state.
+     */
+    private final ReentrantLock lock;
+    private final Condition available;
+    /**
+     * Executor that runs the eviction and leak detection task.
+     */
+    private final ScheduledExecutorService maintenance;
+    /**
+     * Number of open connections, including the ones being created.
+     */
+    private int open;
+    /**
+     * Whether the pool has been shut down.
+     */
+    private boolean closed;
+
+    /**
+     * Constructor method of ConnectionPool.
+     * Schedules the maintenance task, the connections are opened by {@link #warmUp()} or when borrowed.
+     *
+     * @param url JDBC url of the database.
+     * @param user user to log in as.
+     * @param password password of the user.
+     * @param minSize number of connections kept open even when idle.
+     * @param maxSize maximum number of connections open at the same time.
+     * @param idleTimeoutSeconds seconds a connection above the minimum can stay idle before being closed.
+     * @param borrowTimeoutSeconds seconds to wait for a free connection before giving up.
+     * @param validationTimeoutSeconds seconds to wait for the database when validating a connection.
+     * @param leakThresholdSeconds seconds a connection can be borrowed before being reported, 0 to disable.
+     * @param statementCacheSize prepared statements cached on each connection.
+     */
+    ConnectionPool(String url, String user, String password, int minSize, int maxSize, int idleTimeoutSeconds,
+                   int borrowTimeoutSeconds, int validationTimeoutSeconds, int leakThresholdSeconds, int statementCacheSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+        this.borrowTimeoutNanos = TimeUnit.SECONDS.toNanos(borrowTimeoutSeconds);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.leakThresholdMillis = TimeUnit.SECONDS.toMillis(leakThresholdSeconds);
+        this.statementCacheSize = Math.max(1, statementCacheSize);
+        this.idle = new ArrayDeque<>();
+        this.borrowed = new HashSet<>();
+        this.lock = new ReentrantLock();
+        this.available = lock.newCondition();
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain, MAINTENANCE_PERIOD_SECONDS, MAINTENANCE_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Method that opens the connections missing to reach the minimum size, so the first queries
+     * do not wait for them. It also checks that the database can be reached.
+     *
+     * @throws SQLException if a connection could not be opened.
+     */
+    void warmUp() throws SQLException {
+        int missing;
+        lock.lock();
+        try {
+            missing = closed ? 0 : Math.max(0, minSize - open);
+            open += missing;
+        } finally {
+            lock.unlock();
+        }
+        fill(missing);
+    }
+
+    /**
+     * Method that changes the limits of the pool while it is in use.
+     * A smaller pool closes the connections above the new maximum as they are given back, and
+     * the maintenance task opens or evicts idle connections to reach the new minimum.
+     *
+     * @param minSize number of connections kept open even when idle.
+     * @param maxSize maximum number of connections open at the same time.
+     * @param idleTimeoutSeconds seconds a connection above the minimum can stay idle before being closed.
+     * @param borrowTimeoutSeconds seconds to wait for a free connection before giving up.
+     * @param validationTimeoutSeconds seconds to wait for the database when validating a connection.
+     * @param leakThresholdSeconds seconds a connection can be borrowed before being reported, 0 to disable.
+     */
+    void resize(int minSize, int maxSize, int idleTimeoutSeconds, int borrowTimeoutSeconds,
+                int validationTimeoutSeconds, int leakThresholdSeconds) {
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+        this.borrowTimeoutNanos = TimeUnit.SECONDS.toNanos(borrowTimeoutSeconds);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.leakThresholdMillis = TimeUnit.SECONDS.toMillis(leakThresholdSeconds);
+        lock.lock();
+        try {
+            this.maxSize = Math.max(1, maxSize);
+            this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+            // threads waiting for a connection may be able to open one now
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method that hands out a valid connection, waiting for one to be free if the pool is full.
+     *
+     * @return a connection that must be given back through {@link #release(PooledConnection)}.
+     * @throws SQLException if no connection could be obtained in time.
+     */
+    PooledConnection borrow() throws SQLException {
+
+        long deadline = System.nanoTime() + borrowTimeoutNanos;
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (candidate == null && !create) {
+                    if (closed) {
+                        throw new SQLException("The connection pool is closed");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate == null) {
+                        if (open < maxSize) {
+                            open++;
+                            create = true;
+                        }
+                        else {
+                            long remaining = deadline - System.nanoTime();
+                            if (remaining <= 0) {
+                                throw new SQLTimeoutException("Timed out waiting for a free database connection");
+                            }
+                            available.awaitNanos(remaining);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    candidate = connect();
+                } catch (SQLException e) {
+                    discard(null);
+                    throw e;
+                }
+            }
+            else if (System.currentTimeMillis() - candidate.getLastUsed() > VALIDATION_BYPASS_MILLIS
+                    && !candidate.isValid(validationTimeoutSeconds)) {
+                discard(candidate);
+                continue;
+            }
+
+            candidate.markBorrowed(leakThresholdMillis > 0);
+            lock.lock();
+            try {
+                borrowed.add(candidate);
+            } finally {
+                lock.unlock();
+            }
+            return candidate;
+        }
+    }
+
+    /**
+     * Method that gives a borrowed connection back to the pool, rolling back any transaction left open
+     * and making it writable again. Broken connections are closed instead of being reused.
+     *
+     * @param connection connection to give back.
+     */
+    void release(PooledConnection connection) {
+
+        boolean reusable = !connection.isBroken();
+        if (reusable) {
+            try {
+                Connection physical = connection.get();
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly()) {
+                    physical.setReadOnly(false);
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        lock.lock();
+        try {
+            borrowed.remove(connection);
+            if (reusable && !closed && open <= maxSize) {
+                connection.markReturned();
+                idle.addFirst(connection);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(connection);
+    }
+
+    /**
+     * Method that closes every connection and stops the maintenance task.
+     */
+    void close() {
+        maintenance.shutdownNow();
+
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            open -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        toClose.forEach(PooledConnection::close);
+    }
+
+    /**
+     * Method that opens a new physical connection.
+     *
+     * @return the new connection, wrapped to be managed by the pool.
+     * @throws SQLException if the database could not be reached.
+     */
+    private PooledConnection connect() throws SQLException {
+        return new PooledConnection(DriverManager.getConnection(url, user, password), statementCacheSize);
+    }
+
+    /**
+     * Method that closes a connection and frees its slot in the pool.
+     *
+     * @param connection connection to close, null if the slot belonged to a connection that failed to open.
+     */
+    private void discard(PooledConnection connection) {
+        if (connection != null) {
+            connection.close();
+        }
+        lock.lock();
+        try {
+            open--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Maintenance task that evicts connections idle for too long, reports leaked connections
+     * and opens new connections until the minimum size is reached again.
+     */
+    private void maintain() {
+
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        int missing;
+
+        lock.lock();
+        try {
+            Iterator<PooledConnection> oldest = idle.descendingIterator();
+            while (oldest.hasNext() && open - evicted.size() > minSize) {
+                PooledConnection connection = oldest.next();
+                if (now - connection.getLastUsed() < idleTimeoutMillis) {
+                    break;
+                }
+                oldest.remove();
+                evicted.add(connection);
+            }
+            open -= evicted.size();
+
+            if (leakThresholdMillis > 0) {
+                for (PooledConnection connection : borrowed) {
+                    if (!connection.isLeakReported() && now - connection.getBorrowedAt() > leakThresholdMillis) {
+                        connection.setLeakReported();
+                        LOGGER.log(Level.WARNING, "Database connection borrowed for more than %d seconds, possible leak"
+                                .formatted(TimeUnit.MILLISECONDS.toSeconds(leakThresholdMillis)), connection.getBorrowSite());
+                    }
+                }
+            }
+
+            missing = closed ? 0 : minSize - open;
+            open += Math.max(0, missing);
+        } finally {
+            lock.unlock();
+        }
+
+        evicted.forEach(PooledConnection::close);
+
+        try {
+            fill(missing);
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Could not refill the connection pool", e);
+        }
+    }
+
+    /**
+     * Method that opens connections for slots already counted as open and makes them idle.
+     * The slots of the connections that could not be opened are freed.
+     *
+     * @param count number of connections to open.
+     * @throws SQLException if a connection could not be opened.
+     */
+    private void fill(int count) throws SQLException {
+        for (int i = 0; i < count; i++) {
+            try {
+                PooledConnection connection = connect();
+                lock.lock();
+                try {
+                    idle.addLast(connection);
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException e) {
+                for (int j = i; j < count; j++) {
+                    discard(null);
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -2,86 +2,493 @@ package persistence.db;
 
 import com.google.gson.*;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
- * Class that reads the database configuration from a JSON file.
+ * Class that holds the configuration read from a JSON file.
+ * The file is read and parsed once, into an immutable configuration shared by the whole program.
+ * If enabled, the file is watched and every change is read into a new configuration, which is handed
+ * to the reload listeners so they can apply the tunables that do not need a restart
+ * (pool sizes, cache budgets, timeouts, intervals). The database connection settings, the song storage
+ * mode, the playback engine and the lyrics API address are only read at startup.
  *
  * @author Group 6
  * @version 1.0
  */
 public class DBConfiguration {
 
+    private static final Logger LOGGER = Logger.getLogger(DBConfiguration.class.getName());
+
+    /**
+     * Constant path to the configuration file.
+     */
+    private static final Path FILE = Paths.get("data/config.json");
+    /**
+     * Milliseconds to wait for the writes to the file to end before reading it again.
+     */
+    private static final long RELOAD_DELAY = 200;
+
     /**
-     * Method that reads the database configuration from a JSON file.
+     * Configuration in use, null until the file is read for the first time.
+     */
+    private static volatile DBConfiguration current;
+    /**
+     * Listeners notified of every configuration read after a change of the file.
+     */
+    private static final List<Consumer<DBConfiguration>> reloadListeners = new CopyOnWriteArrayList<>();
+    /**
+     * Thread that watches the file, null if it is not watched.
+     */
+    private static Thread watcher;
+
+    private final String address;
+    private final int port;
+    private final String name;
+    private final String user;
+    private final String password;
+    private final int poolMinSize;
+    private final int poolMaxSize;
+    private final int poolIdleTimeout;
+    private final int poolBorrowTimeout;
+    private final int poolValidationTimeout;
+    private final int poolLeakThreshold;
+    private final int statementCacheSize;
+    private final int fetchSize;
+    private final String songStorage;
+    private final int audioCacheSize;
+    private final int positionInterval;
+    private final String playbackEngine;
+    private final String lyricsApiUrl;
+    private final int lyricsTimeout;
+    private final int lyricsMaxRequests;
+    private final int lyricsPrefetch;
+    private final int lyricsPrefetchInterval;
+    private final int lyricsCacheSize;
+    private final int lyricsTtl;
+    private final int lyricsNegativeTtl;
+    private final boolean hotReload;
+
+    /**
+     * Constructor method that reads every value of the configuration, using the defaults of the optional ones.
+     *
+     * @param config JsonObject with the configuration.
+     * @throws IOException if a required value is missing or a value is not valid.
+     */
+    private DBConfiguration(JsonObject config) throws IOException {
+        try {
+            address = getRequired(config, "database_address").getAsString();
+            port = Integer.parseInt(getRequired(config, "database_port").getAsString());
+            name = getRequired(config, "database_name").getAsString();
+            user = getRequired(config, "database_username").getAsString();
+            password = getRequired(config, "database_password").getAsString();
+            poolMinSize = getInt(config, "pool_min_size", 2);
+            poolMaxSize = getInt(config, "pool_max_size", 10);
+            poolIdleTimeout = getInt(config, "pool_idle_timeout", 300);
+            poolBorrowTimeout = getInt(config, "pool_borrow_timeout", 10);
+            poolValidationTimeout = getInt(config, "pool_validation_timeout", 2);
+            poolLeakThreshold = getInt(config, "pool_leak_threshold", 60);
+            statementCacheSize = getInt(config, "statement_cache_size", 64);
+            fetchSize = getInt(config, "fetch_size", 500);
+            songStorage = getString(config, "song_storage", "pcm");
+            audioCacheSize = getInt(config, "audio_cache_size", 128);
+            positionInterval = getInt(config, "position_interval", 250);
+            playbackEngine = getString(config, "playback_engine", "streaming");
+            lyricsApiUrl = getString(config, "lyrics_api_url", "https://balandrau.salle.url.edu/dpoo/lyrics/%s/%s");
+            lyricsTimeout = getInt(config, "lyrics_timeout", 5000);
+            lyricsMaxRequests = getInt(config, "lyrics_max_requests", 4);
+            lyricsPrefetch = getInt(config, "lyrics_prefetch", 5);
+            lyricsPrefetchInterval = getInt(config, "lyrics_prefetch_interval", 500);
+            lyricsCacheSize = getInt(config, "lyrics_cache_size", 256);
+            lyricsTtl = getInt(config, "lyrics_ttl", 720);
+            lyricsNegativeTtl = getInt(config, "lyrics_negative_ttl", 24);
+            JsonElement value = config.get("hot_reload");
+            hotReload = value != null && value.getAsBoolean();
+        } catch (NumberFormatException | UnsupportedOperationException | IllegalStateException e) {
+            throw new IOException("Invalid value in " + FILE, e);
+        }
+    }
+
+    /**
+     * Method that returns the configuration, reading it from the JSON file the first time.
      *
-     * @return JsonObject with the database configuration.
+     * @return DBConfiguration in use.
      * @throws IOException if there was an error reading the file.
      */
-    private JsonObject readConfig() throws IOException {
+    public static DBConfiguration get() throws IOException {
+        DBConfiguration config = current;
+        if (config == null) {
+            synchronized (DBConfiguration.class) {
+                if (current == null) {
+                    current = readConfig();
+                }
+                config = current;
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Method that adds a listener notified with the new configuration every time the file changes.
+     *
+     * @param listener listener to add.
+     */
+    public static void addReloadListener(Consumer<DBConfiguration> listener) {
+        reloadListeners.add(listener);
+    }
 
-        StringBuilder stringBuilder = new StringBuilder();
-        File file = new File("data/config.json");
-        Scanner scanner = new Scanner(file);
+    /**
+     * Method that starts watching the file for changes if the configuration enables it.
+     * Calling it again has no effect.
+     *
+     * @throws IOException if there was an error reading the file or watching its directory.
+     */
+    public static synchronized void watch() throws IOException {
+        if (watcher != null || !get().hotReload) {
+            return;
+        }
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        FILE.toAbsolutePath().getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watcher = new Thread(() -> watchFile(watchService), "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
 
-        while (scanner.hasNext()) {
-            stringBuilder.append(scanner.nextLine());
+    /**
+     * Method that reads the configuration again every time the file changes, until the thread is interrupted.
+     *
+     * @param watchService watch service the directory of the file is registered with.
+     */
+    private static void watchFile(WatchService watchService) {
+        try (watchService) {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                // an editor may write the file in several steps, the events that follow are merged
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= FILE.getFileName().equals(event.context());
+                    }
+                    key.reset();
+                } while ((key = watchService.poll(RELOAD_DELAY, TimeUnit.MILLISECONDS)) != null);
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // the program is ending
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Stopped watching " + FILE, e);
+        }
+    }
+
+    /**
+     * Method that reads the file again and hands the new configuration to the listeners.
+     * An invalid file is ignored, keeping the configuration in use.
+     */
+    private static void reload() {
+        DBConfiguration config;
+        try {
+            config = readConfig();
+        } catch (IOException | JsonParseException e) {
+            LOGGER.log(Level.WARNING, "Ignoring invalid configuration in " + FILE, e);
+            return;
         }
-        scanner.close();
-        String data = stringBuilder.toString();
+        current = config;
+        LOGGER.log(Level.INFO, "Reloaded " + FILE);
+        for (Consumer<DBConfiguration> listener : reloadListeners) {
+            listener.accept(config);
+        }
+    }
 
-        return JsonParser.parseString(data).getAsJsonObject();
+    /**
+     * Method that reads the configuration from the JSON file.
+     *
+     * @return DBConfiguration with the values of the file.
+     * @throws IOException if there was an error reading the file.
+     */
+    private static DBConfiguration readConfig() throws IOException {
+        try {
+            return new DBConfiguration(JsonParser.parseString(Files.readString(FILE, StandardCharsets.UTF_8)).getAsJsonObject());
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Invalid JSON in " + FILE, e);
+        }
     }
 
     /**
      * Method that returns the database address.
      *
      * @return String with the database address.
-     * @throws IOException if there was an error reading the file.
      */
-     protected String getAddress() throws IOException {
-        return readConfig().get("database_address").getAsString();
+     protected String getAddress() {
+        return address;
      }
 
     /**
      * Method that returns the database port.
      *
      * @return int with the database port.
-     * @throws IOException if there was an error reading the file.
      */
-    protected int getPort() throws IOException {
-        return Integer.parseInt(readConfig().get("database_port").getAsString());
+    protected int getPort() {
+        return port;
     }
 
     /**
      * Method that returns the database name.
      *
      * @return String with the database name.
-     * @throws IOException if there was an error reading the file.
      */
-    protected String getName() throws IOException {
-        return readConfig().get("database_name").getAsString();
+    protected String getName() {
+        return name;
     }
 
     /**
      * Method that returns the database user.
      *
      * @return String with the database user.
-     * @throws IOException if there was an error reading the file.
      */
-    protected String getUser() throws IOException {
-        return readConfig().get("database_username").getAsString();
+    protected String getUser() {
+        return user;
     }
 
     /**
      * Method that returns the database password.
      *
      * @return String with the database password.
-     * @throws IOException if there was an error reading the file.
      */
-    protected String getPassword() throws IOException {
-        return readConfig().get("database_password").getAsString();
+    protected String getPassword() {
+        return password;
+    }
+
+    /**
+     * Method that returns the number of connections kept open even when idle.
+     *
+     * @return int with the minimum size of the connection pool.
+     */
+    protected int getPoolMinSize() {
+        return poolMinSize;
+    }
+
+    /**
+     * Method that returns the maximum number of connections open at the same time.
+     *
+     * @return int with the maximum size of the connection pool.
+     */
+    protected int getPoolMaxSize() {
+        return poolMaxSize;
+    }
+
+    /**
+     * Method that returns the seconds an extra connection can stay idle before being closed.
+     *
+     * @return int with the idle timeout in seconds.
+     */
+    protected int getPoolIdleTimeout() {
+        return poolIdleTimeout;
+    }
+
+    /**
+     * Method that returns the seconds to wait for a free connection.
+     *
+     * @return int with the borrow timeout in seconds.
+     */
+    protected int getPoolBorrowTimeout() {
+        return poolBorrowTimeout;
+    }
+
+    /**
+     * Method that returns the seconds to wait for the database when validating a connection.
+     *
+     * @return int with the validation timeout in seconds.
+     */
+    protected int getPoolValidationTimeout() {
+        return poolValidationTimeout;
+    }
+
+    /**
+     * Method that returns the seconds a connection can be borrowed before being reported as leaked.
+     *
+     * @return int with the leak threshold in seconds, 0 if leak detection is disabled.
+     */
+    protected int getPoolLeakThreshold() {
+        return poolLeakThreshold;
+    }
+
+    /**
+     * Method that returns the number of prepared statements cached on each connection.
+     *
+     * @return int with the size of the statement cache.
+     */
+    protected int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Method that returns the number of rows fetched from the database at a time when streaming results.
+     *
+     * @return int with the fetch size.
+     */
+    protected int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Method that returns how imported MP3 files are stored unless the user chooses otherwise when adding them:
+     * "pcm" to expand them to WAV, or "compressed" to keep them as they are and decode them when played.
+     *
+     * @return String with the default song storage mode.
+     */
+    public String getSongStorage() {
+        return songStorage;
+    }
+
+    /**
+     * Method that returns the megabytes of decoded audio kept in memory to replay songs without decoding them again.
+     *
+     * @return int with the size of the audio cache in megabytes, 0 if the cache is disabled.
+     */
+    public int getAudioCacheSize() {
+        return audioCacheSize;
+    }
+
+    /**
+     * Method that returns the milliseconds between two updates of the position of the song being played.
+     *
+     * @return int with the position update interval in milliseconds.
+     */
+    public int getPositionInterval() {
+        return positionInterval;
+    }
+
+    /**
+     * Method that returns how songs are played: "streaming" to feed a line from a small buffer as they
+     * are decoded, or "clip" to decode each song whole into memory before it starts.
+     *
+     * @return String with the playback engine.
+     */
+    public String getPlaybackEngine() {
+        return playbackEngine;
+    }
+
+    /**
+     * Method that returns the address of the lyrics of a song in the lyrics API.
+     *
+     * @return String with the address, with a '%s' for the artist followed by one for the title.
+     */
+    public String getLyricsApiUrl() {
+        return lyricsApiUrl;
+    }
+
+    /**
+     * Method that returns the milliseconds to wait for the lyrics API to connect and to answer.
+     *
+     * @return int with the lyrics request timeout in milliseconds.
+     */
+    public int getLyricsTimeout() {
+        return lyricsTimeout;
+    }
+
+    /**
+     * Method that returns the maximum number of requests sent to the lyrics API at the same time.
+     *
+     * @return int with the maximum number of lyrics requests.
+     */
+    public int getLyricsMaxRequests() {
+        return lyricsMaxRequests;
+    }
+
+    /**
+     * Method that returns the number of songs after the one being played whose lyrics are fetched in advance.
+     *
+     * @return int with the number of songs prefetched.
+     */
+    public int getLyricsPrefetch() {
+        return lyricsPrefetch;
+    }
+
+    /**
+     * Method that returns the milliseconds left between two lyrics fetched in advance.
+     *
+     * @return int with the lyrics prefetch interval in milliseconds.
+     */
+    public int getLyricsPrefetchInterval() {
+        return lyricsPrefetchInterval;
+    }
+
+    /**
+     * Method that returns the number of lyrics kept in memory.
+     *
+     * @return int with the size of the lyrics cache.
+     */
+    public int getLyricsCacheSize() {
+        return lyricsCacheSize;
+    }
+
+    /**
+     * Method that returns the hours lyrics are cached before being fetched again.
+     *
+     * @return int with the lyrics time to live in hours.
+     */
+    public int getLyricsTtl() {
+        return lyricsTtl;
+    }
+
+    /**
+     * Method that returns the hours a song without lyrics is cached before its lyrics are looked for again.
+     *
+     * @return int with the time to live of missing lyrics in hours.
+     */
+    public int getLyricsNegativeTtl() {
+        return lyricsNegativeTtl;
+    }
+
+    /**
+     * Method that reads a required value from the configuration.
+     *
+     * @param config JsonObject with the configuration.
+     * @param key name of the value.
+     * @return JsonElement with the value.
+     * @throws IOException if the value is not present.
+     */
+    private static JsonElement getRequired(JsonObject config, String key) throws IOException {
+        JsonElement value = config.get(key);
+        if (value == null || value.isJsonNull()) {
+            throw new IOException("Missing \"" + key + "\" in " + FILE);
+        }
+        return value;
+    }
+
+    /**
+     * Method that reads an optional integer value from the configuration.
+     *
+     * @param config JsonObject with the configuration.
+     * @param key name of the value.
+     * @param defaultValue value returned if the key is not present.
+     * @return int with the configured value.
+     */
+    private static int getInt(JsonObject config, String key, int defaultValue) {
+        JsonElement value = config.get(key);
+        return value == null ? defaultValue : value.getAsInt();
+    }
+
+    /**
+     * Method that reads an optional text value from the configuration.
+     *
+     * @param config JsonObject with the configuration.
+     * @param key name of the value.
+     * @param defaultValue value returned if the key is not present.
+     * @return String with the configured value.
+     */
+    private static String getString(JsonObject config, String key, String defaultValue) {
+        JsonElement value = config.get(key);
+        return value == null ? defaultValue : value.getAsString();
     }
-}
\ No newline at end of file
+}
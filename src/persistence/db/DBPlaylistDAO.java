@@ -7,7 +7,6 @@ import persistence.exceptions.PersistenceException;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -41,44 +40,31 @@ public class DBPlaylistDAO implements PlaylistDAO {
     @Override
     public void createPlaylist(Playlist playlist) throws PersistenceException {
 
-        db.update("INSERT INTO playlist(title, owner, description) VALUES('%s','%s','%s')".formatted(
-                playlist.getName().replaceAll("'", "''"),
-                playlist.getOwner().replaceAll("'", "''"),
-                playlist.getDescription().replaceAll("'", "''")
-        ));
+        db.update(
+                "INSERT INTO playlist(title, owner, description) VALUES(?, ?, ?)",
+                playlist.getName(),
+                playlist.getOwner(),
+                playlist.getDescription()
+        );
     }
 
     /**
      * Method that deletes a playlist from the database.
+     * Its songs are removed from the playlist_song table by the cascading foreign key.
      *
      * @param playlistId id of the playlist to delete.
      * @throws PersistenceException if there was an error in the database.
      */
     @Override
     public void deletePlaylist(int playlistId) throws PersistenceException {
-        db.update("DELETE FROM playlist_song WHERE playlist_id = %d".formatted(playlistId));
-        db.update("DELETE FROM playlist WHERE id = %d".formatted(playlistId));
-    }
-
-    /**
-     * Method that deletes all playlists created by a specific user.
-     *
-     * @param user user whose playlists will be deleted.
-     * @throws PersistenceException if there was an error in the database.
-     */
-    @Override
-    public void deletePlaylistsByUser(String user) throws PersistenceException {
-        try (ResultSet query = db.query("SELECT id FROM playlist WHERE owner LIKE '%s'".formatted(user.replaceAll("'", "''")))) {
-            while (query.next()) {
-                deletePlaylist(query.getInt(1));
-            }
-        } catch (SQLException e) {
-            throw new PersistenceException("Couldn't read the playlists' data", e);
-        }
+        db.update("DELETE FROM playlist WHERE id = ?", playlistId);
     }
 
     /**
      * Method that adds a song to a playlist.
+     * The song takes the next position of the playlist, which is reserved by incrementing a
+     * counter in the playlist row, so concurrent additions are serialized by the row lock and
+     * never scan the songs already added. Duplicates are rejected by the primary key of playlist_song.
      *
      * @param playlistId id of the playlist to add the song to.
      * @param songId id of the song to add to the playlist.
@@ -87,26 +73,17 @@ public class DBPlaylistDAO implements PlaylistDAO {
      */
     @Override
     public boolean addSong(int playlistId, int songId) throws PersistenceException {
-
-        try (ResultSet query = db.query("SELECT * FROM playlist_song WHERE playlist_id = %d AND song_id = %d".formatted(playlistId, songId))) {
-            query.next();
-            if (0 < query.getRow()) {
-                return false;
-            }
-        } catch (SQLException e) {
-            throw new PersistenceException("Couldn't access the playlist's songs", e);
-        }
-
-        int position;
-        try (ResultSet query = db.query("SELECT COUNT(*) FROM playlist_song")) {
-            query.next();
-            position = query.getInt(1);
-        } catch (SQLException e) {
-            throw new PersistenceException("Couldn't assign the song position in the playlist", e);
-        }
-
-        db.update("INSERT INTO playlist_song (playlist_id, song_id, position) VALUES(%d,%d,%d)".formatted(playlistId, songId, position));
-        return true;
+        return 0 < db.update(
+                "WITH slot AS (" +
+                        "UPDATE playlist SET next_position = next_position + 1 " +
+                        "WHERE id = ? AND NOT EXISTS (SELECT 1 FROM playlist_song WHERE playlist_id = ? AND song_id = ?) " +
+                        "RETURNING id, next_position - 1 AS position" +
+                ") " +
+                "INSERT INTO playlist_song (playlist_id, song_id, position) " +
+                "SELECT id, ?, position FROM slot " +
+                "ON CONFLICT (playlist_id, song_id) DO NOTHING",
+                playlistId, playlistId, songId, songId
+        );
     }
 
     /**
@@ -118,7 +95,7 @@ public class DBPlaylistDAO implements PlaylistDAO {
      */
     @Override
     public void removeSong(int playlistId, int songId) throws PersistenceException {
-        db.update("DELETE FROM playlist_song WHERE playlist_id = %d AND song_id = %d".formatted(playlistId, songId));
+        db.update("DELETE FROM playlist_song WHERE playlist_id = ? AND song_id = ?", playlistId, songId);
     }
 
     /**
@@ -131,8 +108,7 @@ public class DBPlaylistDAO implements PlaylistDAO {
      */
     @Override
     public void setPosition(int playlistId, int songId, int position) throws PersistenceException {
-        db.update("UPDATE playlist_song SET position = %d WHERE playlist_id = %d AND song_id = %d"
-                .formatted(position, playlistId, songId));
+        db.update("UPDATE playlist_song SET position = ? WHERE playlist_id = ? AND song_id = ?", position, playlistId, songId);
     }
 
     /**
@@ -145,61 +121,90 @@ public class DBPlaylistDAO implements PlaylistDAO {
     @Override
     public List<Playlist> getPlaylists() throws PersistenceException {
 
-        List<Playlist> playlists = new ArrayList<>();
-
-        try (ResultSet query = db.query("SELECT * FROM playlist")) {
-            while (query.next()) {
-                playlists.add(new Playlist(
-                        query.getInt(1),
-                        query.getString(2),
-                        query.getString(3),
-                        query.getString(4)
-                ));
-            }
-            return playlists.size() > 0 ? playlists : null;
-        } catch (SQLException e) {
-            throw new PersistenceException("Couldn't read the playlists' data", e);
-        }
+        List<Playlist> playlists = db.query("SELECT * FROM playlist", DBPlaylistDAO::mapPlaylist);
+        return playlists.size() > 0 ? playlists : null;
+    }
+
+    /**
+     * Method that returns the playlists created by a specific user.
+     * Only their ids and names are fetched.
+     *
+     * @param owner user whose playlists will be returned.
+     * @return list of the user's playlists, empty if they have none.
+     * @throws PersistenceException if there was an error in the database.
+     */
+    @Override
+    public List<Playlist> getPlaylistsByOwner(String owner) throws PersistenceException {
+        return db.query(
+                "SELECT id, title FROM playlist WHERE owner = ? ORDER BY id",
+                row -> new Playlist(row.getInt("id"), row.getString("title"), owner, null),
+                owner
+        );
     }
 
     /**
      * Method that returns a playlist with all its songs.
+     * The playlist and its songs, in order, are read in a single query.
      *
      * @param id id of the playlist to fetch.
-     * @return playlist with all its songs.
+     * @return playlist with all its songs, null if it does not exist.
      * @throws PersistenceException if there was an error in the database.
      */
     @Override
     public Playlist getPlaylistWithSongs(int id) throws PersistenceException {
+        return db.queryResult(
+                "SELECT p.id AS playlist_id, p.title AS playlist_title, p.owner AS playlist_owner, p.description, " +
+                        "s.id, s.title, s.artist, s.album, s.genre, s.duration, s.owner, ps.position " +
+                "FROM playlist p " +
+                "LEFT JOIN playlist_song ps ON ps.playlist_id = p.id " +
+                "LEFT JOIN song s ON s.id = ps.song_id " +
+                "WHERE p.id = ? " +
+                "ORDER BY ps.position",
+                result -> {
+                    if (!result.next()) {
+                        return null;
+                    }
+                    Playlist playlist = new Playlist(
+                            result.getInt("playlist_id"),
+                            result.getString("playlist_title"),
+                            result.getString("playlist_owner"),
+                            result.getString("description")
+                    );
+                    // an empty playlist still returns one row, with no song in it
+                    do {
+                        int songId = result.getInt("id");
+                        if (!result.wasNull()) {
+                            playlist.addSong(new Song(
+                                    songId,
+                                    result.getString("title"),
+                                    result.getString("artist"),
+                                    result.getString("album"),
+                                    result.getString("genre"),
+                                    result.getFloat("duration"),
+                                    result.getString("owner"),
+                                    result.getInt("position")
+                            ));
+                        }
+                    } while (result.next());
+                    return playlist;
+                },
+                id
+        );
+    }
 
-        List<Playlist> playlists = getPlaylists();
-
-        if (playlists == null) {
-            return null;
-        }
-
-        Playlist playlist = playlists.stream().filter(p -> p.getId() == id).findFirst().orElse(null);
-
-        if (playlist != null) {
-            try (ResultSet querySongs = db.query(
-                    "SELECT * FROM song s JOIN playlist_song ps ON ps.song_id = s.id WHERE ps.playlist_id = %d ORDER BY ps.position"
-                            .formatted(playlist.getId()))) {
-                while (querySongs.next()) {
-                    playlist.addSong(new Song(
-                            querySongs.getInt(1),
-                            querySongs.getString(2),
-                            querySongs.getString(3),
-                            querySongs.getString(4),
-                            querySongs.getString(5),
-                            querySongs.getFloat(6),
-                            querySongs.getString(7),
-                            querySongs.getInt(10)
-                    ));
-                }
-            } catch (SQLException e) {
-                throw new PersistenceException("Couldn't read the playlist's songs' data", e);
-            }
-        }
-        return playlist;
+    /**
+     * Method that builds a playlist, without its songs, from a row of the playlist table.
+     *
+     * @param row row positioned on the playlist to build.
+     * @return the playlist of the row.
+     * @throws SQLException if a column could not be read.
+     */
+    private static Playlist mapPlaylist(ResultSet row) throws SQLException {
+        return new Playlist(
+                row.getInt("id"),
+                row.getString("title"),
+                row.getString("owner"),
+                row.getString("description")
+        );
     }
 }
\ No newline at end of file
@@ -1,26 +1,21 @@
 package persistence.db;
 
 import business.entities.Song;
-import javazoom.jl.converter.Converter;
-import javazoom.jl.decoder.JavaLayerException;
 import persistence.SongDAO;
 import persistence.exceptions.PersistenceException;
+import persistence.files.SongFile;
+import persistence.files.SongStorage;
 
-import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.UnsupportedAudioFileException;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  * DAO class for {@link Song} entity that connects {@link SongDAO} with the database.
@@ -30,130 +25,116 @@ import java.util.Locale;
  */
 public class DBSongDAO implements SongDAO {
 
-    /**
-     * Constant path to the song directory.
-     */
-    private static final Path SONGS_DIR = Paths.get("files/songs/");
     /**
      * Database instance to communicate with the database.
      */
     private final Database db;
+    /**
+     * SongStorage instance to manage the song files.
+     */
+    private final SongStorage storage;
 
     /**
-     * Constructor method that initializes the db attribute.
+     * Constructor method that initializes the db and storage attributes.
      *
      * @param db database instance to communicate with the database.
-     * @throws PersistenceException if there was an error creating the song directory.
+     * @param storage song storage that manages the song files.
      */
-    public DBSongDAO(Database db) throws PersistenceException {
+    public DBSongDAO(Database db, SongStorage storage) {
 
         this.db = db;
-
-        try {
-            Files.createDirectories(SONGS_DIR);
-        } catch (IOException e) {
-            throw new PersistenceException("Failed to create the songs directory", e);
-        }
+        this.storage = storage;
     }
 
     /**
-     * Method that stores a song in the database and copies the song file to the song directory.
+     * Method that imports a song file into the song directory, ready to be stored with {@link #createSongs}.
      *
-     * @param song song to store.
      * @param songPath path to the song file.
-     * @throws PersistenceException if there was an error in the database or with the file system.
+     * @param keepCompressed true to store an MP3 file as it is, false to expand it to WAV.
+     * @return the imported file.
+     * @throws PersistenceException if there was an error with the file system.
      */
     @Override
-    public void createSong(Song song, String songPath) throws PersistenceException {
-
-        Path tmpFile = SONGS_DIR.resolve("tmp.wav").toAbsolutePath();
-
-        if (songPath.endsWith(".mp3")) {
-            Converter converter = new Converter();
-            try {
-                converter.convert(songPath, tmpFile.toString());
-            } catch (JavaLayerException e) {
-                throw new PersistenceException("Failed to convert the mp3 file", e);
-            }
-        }
-        else if (songPath.endsWith(".wav")) {
-            Path songFile = Paths.get(songPath);
-            try {
-                Files.copy(songFile, tmpFile, StandardCopyOption.REPLACE_EXISTING);
-            } catch (IOException e) {
-                throw new PersistenceException("Failed to import song file", e);
-            }
-        }
-        else {
-            throw new PersistenceException("Unsupported file format, only .mp3 and .wav are supported");
-        }
-
-        File songFile = new File(tmpFile.toString());
-
-        float duration;
-        try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(songFile)) {
-            AudioFormat format = audioInputStream.getFormat();
-            duration = (songFile.length() / (format.getFrameSize() * format.getFrameRate()));
-        } catch (UnsupportedAudioFileException | IOException e) {
-            throw new PersistenceException("Failed to read song file", e);
-        }
-
-        db.update(
-                String.format(
-                        Locale.UK,
-                        "INSERT INTO song(title, artist, album, genre, duration, owner) VALUES('%s','%s','%s','%s',%f,'%s')",
-                        song.getTitle().replaceAll("'", "''"),
-                        song.getArtist().replaceAll("'", "''"),
-                        song.getAlbum().replaceAll("'", "''"),
-                        song.getGenre(),
-                        duration,
-                        song.getOwner().replaceAll("'", "''")
-                ));
-
-        List<Song> songs = getSongs(song.getTitle());
-        int songId = songs.get(songs.size() - 1).getId();
+    public SongFile importFile(String songPath, boolean keepCompressed) throws PersistenceException {
+        return storage.importFile(songPath, keepCompressed);
+    }
 
-        try {
-            Files.move(tmpFile, tmpFile.resolveSibling(songId + ".wav"));
-        } catch (IOException e) {
-            deleteSong(songId);
-            try {
-                Files.deleteIfExists(tmpFile);
-            } catch (IOException ignored) {}
-
-            throw new PersistenceException("Failed to internally rename song file", e);
-        }
+    /**
+     * Method that removes an imported song file that will not be stored.
+     *
+     * @param file imported file to remove.
+     */
+    @Override
+    public void discardFile(SongFile file) {
+        storage.discard(file.getPath());
     }
 
     /**
-     * Method that deletes a song from the database and the song file from the song directory.
+     * Method that stores several songs in the database and moves their imported files to the song directory.
+     * The ids are reserved from the song sequence with a single query and the rows are inserted as one batch.
+     * The rows are inserted and the files renamed to their final name inside the same transaction,
+     * so a song is never stored without its file, nor a file left behind without its song.
      *
-     * @param songId id of the song to delete.
+     * @param songs songs to store.
+     * @param files imported files of the songs, in the same order.
+     * @return the ids generated for the songs, in the same order.
      * @throws PersistenceException if there was an error in the database or with the file system.
      */
     @Override
-    public void deleteSong(int songId) throws PersistenceException {
+    public List<Integer> createSongs(List<Song> songs, List<SongFile> files) throws PersistenceException {
 
-        File song = new File(SONGS_DIR.resolve(songId + ".wav").toUri());
+        List<Path> storedFiles = new ArrayList<>();
 
-        db.update("DELETE FROM playlist_song WHERE song_id = %d".formatted(songId));
-        db.update("DELETE FROM song WHERE id = %d".formatted(songId));
+        try {
+            return db.transaction(tx -> {
+                List<Integer> ids = tx.query(
+                        "SELECT nextval(pg_get_serial_sequence('song', 'id')) FROM generate_series(1, ?)",
+                        row -> row.getInt(1),
+                        songs.size()
+                );
+
+                List<Object[]> rows = new ArrayList<>(songs.size());
+                for (int i = 0; i < songs.size(); i++) {
+                    Song song = songs.get(i);
+                    rows.add(new Object[]{
+                            ids.get(i),
+                            song.getTitle(),
+                            song.getArtist(),
+                            song.getAlbum(),
+                            song.getGenre(),
+                            files.get(i).getDuration(),
+                            song.getOwner()
+                    });
+                }
+                tx.batch("INSERT INTO song(id, title, artist, album, genre, duration, owner) VALUES(?, ?, ?, ?, ?, ?, ?)", rows);
+
+                for (int i = 0; i < files.size(); i++) {
+                    try {
+                        storedFiles.add(Files.move(files.get(i).getPath(), storage.getSongFile(ids.get(i), files.get(i)), StandardCopyOption.ATOMIC_MOVE));
+                    } catch (IOException e) {
+                        throw new PersistenceException("Failed to internally rename song file", e);
+                    }
+                }
+                return ids;
+            });
+        } catch (PersistenceException e) {
+            // the transaction was rolled back, so the renamed files no longer belong to any song
+            storedFiles.forEach(storage::discard);
+            throw e;
+        }
     }
 
     /**
-     * Method that deletes the songs created by a given user.
+     * Method that deletes a song from the database and the song file from the song directory.
+     * The song is removed from the playlists by the cascading foreign key of playlist_song.
      *
-     * @param user user whose songs will be deleted.
-     * @throws PersistenceException if there was an error in the database or with the file system.
+     * @param songId id of the song to delete.
+     * @throws PersistenceException if there was an error in the database.
      */
     @Override
-    public void deleteSongsByUser(String user) throws PersistenceException {
-        try (ResultSet query = db.query("SELECT id FROM song WHERE owner LIKE '%s'".formatted(user.replaceAll("'", "''")))) {
-            while (query.next()) {
-                deleteSong(query.getInt(1));
-            }
-        } catch (SQLException e) {
-            throw new PersistenceException("Couldn't read the songs' data", e);
+    public void deleteSong(int songId) throws PersistenceException {
+        if (0 < db.update("DELETE FROM song WHERE id = ?", songId)) {
+            storage.deleteLater(List.of(songId));
         }
     }
 
@@ -166,75 +147,79 @@ public class DBSongDAO implements SongDAO {
      */
     @Override
     public Song getSong(int id) throws PersistenceException {
-        List<Song> songs = fetchSongs(null, id);
-        return songs.isEmpty() ? null : songs.get(0);
+        return db.queryFirst("SELECT * FROM song WHERE id = ?", DBSongDAO::mapSong, id);
     }
 
     /**
-     * Method that fetches songs matching the given title from the database.
+     * Method that fetches a page of the songs whose title, artist, album or genre match the given text, ignoring case.
+     * Each column has a trigram index on its lowercase value, so both prefix and substring matches
+     * avoid scanning the whole table. Pages are ordered by id and continue after the last id of the
+     * previous page, so deep pages cost the same as the first one.
      *
-     * @param title title of the songs to fetch.
-     * @return List with the fetched songs, null if no songs found.
-     * @throws PersistenceException
+     * @param text text to look for.
+     * @param prefix true to only match values starting with the text, false to match it anywhere.
+     * @param afterId id of the last song of the previous page, 0 for the first page.
+     * @param limit maximum number of songs to fetch.
+     * @return List with the fetched songs, empty if no more songs match.
+     * @throws PersistenceException if there was an error in the database.
      */
     @Override
-    public List<Song> getSongs(String title) throws PersistenceException {
-        List<Song> songs = fetchSongs(title, -1);
-        return songs.isEmpty() ? null : songs;
+    public List<Song> searchSongs(String text, boolean prefix, int afterId, int limit) throws PersistenceException {
+        String pattern = (prefix ? "" : "%") + escapeLike(text) + "%";
+        return db.query(
+                "SELECT * FROM song "
+                        + "WHERE (lower(title) LIKE lower(?) OR lower(artist) LIKE lower(?) "
+                        + "OR lower(album) LIKE lower(?) OR lower(genre) LIKE lower(?)) "
+                        + "AND id > ? ORDER BY id LIMIT ?",
+                DBSongDAO::mapSong,
+                pattern, pattern, pattern, pattern, afterId, Math.max(1, limit)
+        );
     }
 
     /**
-     * Method that fetches all the songs from the database.
+     * Method that streams all the songs of the database, one at a time, without loading
+     * the whole catalog in memory.
      *
-     * @return List with the fetched songs, null if no songs found.
+     * @param action callback that receives each song.
      * @throws PersistenceException if there was an error in the database.
      */
     @Override
-    public List<Song> getAllSongs() throws PersistenceException {
-        List<Song> songs = fetchSongs("", -1);
-        return songs.isEmpty() ? null : songs;
+    public void forEachSong(Consumer<Song> action) throws PersistenceException {
+        db.stream("SELECT * FROM song ORDER BY id", DBSongDAO::mapSong, action);
     }
 
     /**
-     * Private method that performs the query to fetch songs from the database.
+     * Method that builds a song from a row of the song table.
      *
-     * @param title title of the songs to fetch, if null, id is used.
-     * @param id id of the song to fetch, if title is not used.
-     * @return List with the fetched songs.
-     * @throws PersistenceException if there was an error in the database.
+     * @param row row positioned on the song to build.
+     * @return the song of the row.
+     * @throws SQLException if a column could not be read.
      */
-    private List<Song> fetchSongs(String title, int id) throws PersistenceException {
-
-        List<Song> songs = new ArrayList<>();
-
-        String queryStr = "SELECT * FROM song WHERE ";
-        if (title == null) {
-            queryStr += "id = " + id;
-        }
-        else {
-            queryStr += "title LIKE '%%%s%%'".formatted(title.replaceAll("'", "''"));
-        }
+    private static Song mapSong(ResultSet row) throws SQLException {
+        return new Song(
+                row.getInt("id"),
+                row.getString("title"),
+                row.getString("artist"),
+                row.getString("album"),
+                row.getString("genre"),
+                row.getFloat("duration"),
+                row.getString("owner")
+        );
+    }
 
-        try (ResultSet query = db.query(queryStr)) {
-            while (query.next()) {
-                songs.add(new Song(
-                        query.getInt(1),
-                        query.getString(2),
-                        query.getString(3),
-                        query.getString(4),
-                        query.getString(5),
-                        query.getFloat(6),
-                        query.getString(7)
-                ));
-            }
-        } catch (SQLException e) {
-            throw new PersistenceException("Couldn't read the songs' data", e);
-        }
-        return songs;
+    /**
+     * Method that escapes the wildcard characters of a LIKE pattern so they are matched literally.
+     *
+     * @param text text to escape.
+     * @return the escaped text.
+     */
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     /**
      * Method that fetches the audio data of a song from the song directory.
+     * Songs stored compressed are decoded while the returned stream is read.
      *
      * @param songId id of the song whose audio data will be fetched.
      * @return AudioInputStream with the audio data of the song.
@@ -242,13 +227,6 @@ public class DBSongDAO implements SongDAO {
      */
     @Override
     public AudioInputStream getAudio(int songId) throws PersistenceException {
-
-        File songWav = new File(SONGS_DIR.toAbsolutePath() + "/" + songId + ".wav");
-
-        try {
-            return AudioSystem.getAudioInputStream(songWav);
-        } catch (UnsupportedAudioFileException | IOException e) {
-            throw new PersistenceException("Failed to read song audio data", e);
-        }
+        return storage.openAudio(songId);
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,12 @@
 package persistence.db;
 
+import business.entities.DeletionReport;
 import business.entities.User;
 import persistence.UserDAO;
 import persistence.exceptions.PersistenceException;
+import persistence.files.SongStorage;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.List;
 
 /**
  * DAO class for {@link User} entity that connects {@link UserDAO} with the database.
@@ -19,14 +20,20 @@ public class DBUserDAO implements UserDAO {
      * Database instance to communicate with the database.
      */
     private final Database db;
+    /**
+     * SongStorage instance to remove the song files of deleted users.
+     */
+    private final SongStorage storage;
 
     /**
-     * Constructor method that initializes the db attribute.
+     * Constructor method that initializes the db and storage attributes.
      *
      * @param db database instance to communicate with the database.
+     * @param storage song storage shared with the songs DAO, to remove the song files of deleted users.
      */
-    public DBUserDAO(Database db) {
+    public DBUserDAO(Database db, SongStorage storage) {
         this.db = db;
+        this.storage = storage;
     }
 
     /**
@@ -37,23 +44,54 @@ public class DBUserDAO implements UserDAO {
      */
     @Override
     public void createUser(User user) throws PersistenceException {
-        db.update("INSERT INTO users VALUES('%s','%s','%s')".formatted(
+        db.update(
+                "INSERT INTO users VALUES(?, ?, ?)",
                 user.getUsername(),
                 user.getEmail(),
                 user.getPassword()
-        ));
+        );
     }
 
     /**
-     * Method that deletes a user from the database.
+     * Method that deletes a user from the database together with their songs and playlists.
+     * Deleting the user row removes the rest through the cascading foreign keys. The account is
+     * locked first, inside the same transaction, so nothing can be added to it before it is gone
+     * and the songs read are exactly the ones removed. Once committed, the files of the deleted
+     * songs are removed from the song directory in the background.
      *
      * @param username username of the user to delete.
-     * @return true if the user was deleted, false otherwise.
-     * @throws PersistenceException if there was an error in the database.º
+     * @return report with the rows and bytes freed by the deletion.
+     * @throws PersistenceException if there was an error in the database.
      */
     @Override
-    public boolean deleteUser(String username) throws PersistenceException {
-        return 0 < db.update("DELETE FROM users WHERE username LIKE '%s'".formatted(username));
+    public DeletionReport deleteUser(String username) throws PersistenceException {
+
+        int[] counts = new int[3];
+        List<Integer> songIds = db.transaction(tx -> {
+            if (tx.query("SELECT 1 FROM users WHERE username = ? FOR UPDATE", row -> 1, username).isEmpty()) {
+                return List.of();
+            }
+            List<Integer> ids = tx.query("SELECT id FROM song WHERE owner = ?", row -> row.getInt(1), username);
+            tx.query(
+                    "SELECT (SELECT count(*) FROM playlist_song "
+                            + "WHERE song_id IN (SELECT id FROM song WHERE owner = ?) "
+                            + "OR playlist_id IN (SELECT id FROM playlist WHERE owner = ?)), "
+                            + "(SELECT count(*) FROM playlist WHERE owner = ?)",
+                    row -> {
+                        counts[0] = row.getInt(1);
+                        counts[1] = row.getInt(2);
+                        return null;
+                    },
+                    username, username, username
+            );
+            counts[2] = tx.update("DELETE FROM users WHERE username = ?", username);
+            return ids;
+        });
+
+        long bytes = storage.getSize(songIds);
+        storage.deleteLater(songIds);
+
+        return new DeletionReport(counts[2], songIds, counts[1], counts[0], bytes);
     }
 
     /**
@@ -65,26 +103,15 @@ public class DBUserDAO implements UserDAO {
      */
     @Override
     public User getUser(String user) throws PersistenceException {
-
-        try (
-            ResultSet queryByUsername = db.query("SELECT * FROM users WHERE username LIKE '%s'".formatted(user));
-            ResultSet queryByEmail = db.query("SELECT * FROM users WHERE email LIKE '%s'".formatted(user))
-        ) {
-            ResultSet query;
-            if (queryByUsername.first()) {
-                query = queryByUsername;
-            } else if (queryByEmail.first()) {
-                query = queryByEmail;
-            } else {
-                return null;
-            }
-            return new User(
-                    query.getString(1),
-                    query.getString(2),
-                    query.getString(3)
-            );
-        } catch (SQLException e) {
-            throw new PersistenceException("Couldn't read the user's data", e);
-        }
+        // a match by username takes precedence over a match by email
+        return db.queryFirst(
+                "SELECT * FROM users WHERE username = ? OR email = ? ORDER BY username = ? DESC LIMIT 1",
+                row -> new User(
+                        row.getString(1),
+                        row.getString(2),
+                        row.getString(3)
+                ),
+                user, user, user
+        );
     }
 }
\ No newline at end of file
@@ -4,12 +4,18 @@ import persistence.exceptions.PersistenceException;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * This class allows communication to the database.
+ * Every call borrows a connection from a {@link ConnectionPool}, so calls made from
+ * different threads do not block each other, and runs parameterized statements that
+ * are prepared once per connection and then reused.
  *
  * @author Group 6
  * @version 1.0
@@ -17,55 +23,268 @@ import java.sql.SQLException;
 public class Database {
 
     /**
-     * Represents the session with the database.
+     * Pool of sessions with the database.
      */
-    private final Connection db;
+    private final ConnectionPool pool;
+    /**
+     * Number of rows fetched at a time by streaming queries.
+     */
+    private volatile int fetchSize;
 
     /**
-     * Constructor method that initializes the db attribute with a new Connection instance.
-     * It establishes a connection to the database using the DBConfiguration class.
+     * Constructor method that initializes the connection pool with the settings of the DBConfiguration class.
+     * No connection is opened yet, see {@link #connect()}.
      *
-     * @throws PersistenceException if the connection was unsuccessful.
+     * @throws PersistenceException if the configuration could not be read.
      */
     public Database() throws PersistenceException {
-        DBConfiguration config = new DBConfiguration();
         try {
-            db = DriverManager.getConnection(
+            DBConfiguration config = DBConfiguration.get();
+            pool = new ConnectionPool(
                     "jdbc:postgresql://%s:%d/%s".formatted(config.getAddress(), config.getPort(), config.getName()),
                     config.getUser(),
-                    config.getPassword()
+                    config.getPassword(),
+                    config.getPoolMinSize(),
+                    config.getPoolMaxSize(),
+                    config.getPoolIdleTimeout(),
+                    config.getPoolBorrowTimeout(),
+                    config.getPoolValidationTimeout(),
+                    config.getPoolLeakThreshold(),
+                    config.getStatementCacheSize()
             );
-        } catch (SQLException | IOException e) {
+            fetchSize = Math.max(1, config.getFetchSize());
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to read the database configuration", e);
+        }
+        DBConfiguration.addReloadListener(this::configChanged);
+    }
+
+    /**
+     * Method that establishes the connections kept open by the pool, checking that the database can be reached.
+     * Calls made meanwhile open their own connections, so it can run in the background.
+     *
+     * @throws PersistenceException if the connection was unsuccessful.
+     */
+    public void connect() throws PersistenceException {
+        try {
+            pool.warmUp();
+        } catch (SQLException e) {
             throw new PersistenceException("Failed to establish connection to the database", e);
         }
     }
 
     /**
-     * Method that performs a given query to the database.
+     * Method that applies the pool limits and the fetch size of a configuration that has been reloaded.
+     * The connection settings only take effect after a restart.
      *
-     * @param query the query to perform.
-     * @return ResultSet with the results of the query.
+     * @param config new configuration.
+     */
+    private void configChanged(DBConfiguration config) {
+        pool.resize(config.getPoolMinSize(), config.getPoolMaxSize(), config.getPoolIdleTimeout(),
+                config.getPoolBorrowTimeout(), config.getPoolValidationTimeout(), config.getPoolLeakThreshold());
+        fetchSize = Math.max(1, config.getFetchSize());
+    }
+
+    /**
+     * Method that performs a given query to the database and maps every row of the result.
+     *
+     * @param sql the query to perform, with a '?' for each parameter.
+     * @param mapper function that builds an object from each row.
+     * @param params values bound to the parameters of the query, in order.
+     * @param <T> type of the objects built from the rows.
+     * @return List with one object per row, empty if there were no results.
      * @throws PersistenceException if there was an error in the query execution
      */
-    protected ResultSet query(String query) throws PersistenceException {
+    protected <T> List<T> query(String sql, RowMapper<T> mapper, Object... params) throws PersistenceException {
+        PooledConnection connection = borrow();
         try {
-            return db.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY).executeQuery(query);
+            PreparedStatement statement = connection.prepare(sql);
+            bind(statement, params);
+            try (ResultSet result = statement.executeQuery()) {
+                List<T> rows = new ArrayList<>();
+                while (result.next()) {
+                    rows.add(mapper.map(result));
+                }
+                return rows;
+            }
         } catch (SQLException e) {
+            connection.checkError(e);
             throw new PersistenceException("Failed to retrieve data from the database", e);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Method that performs a given query to the database and maps the first row of the result.
+     *
+     * @param sql the query to perform, with a '?' for each parameter.
+     * @param mapper function that builds an object from the row.
+     * @param params values bound to the parameters of the query, in order.
+     * @param <T> type of the object built from the row.
+     * @return the object built from the first row, null if there were no results.
+     * @throws PersistenceException if there was an error in the query execution
+     */
+    protected <T> T queryFirst(String sql, RowMapper<T> mapper, Object... params) throws PersistenceException {
+        List<T> rows = query(sql, mapper, params);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Method that performs a given query to the database and builds a single object from the whole result.
+     *
+     * @param sql the query to perform, with a '?' for each parameter.
+     * @param mapper function that builds an object from the result, positioned before the first row.
+     * @param params values bound to the parameters of the query, in order.
+     * @param <T> type of the object built from the result.
+     * @return the object built by the mapper.
+     * @throws PersistenceException if there was an error in the query execution
+     */
+    protected <T> T queryResult(String sql, ResultMapper<T> mapper, Object... params) throws PersistenceException {
+        PooledConnection connection = borrow();
+        try {
+            PreparedStatement statement = connection.prepare(sql);
+            bind(statement, params);
+            try (ResultSet result = statement.executeQuery()) {
+                return mapper.map(result);
+            }
+        } catch (SQLException e) {
+            connection.checkError(e);
+            throw new PersistenceException("Failed to retrieve data from the database", e);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Method that performs a given query to the database and hands every row of the result
+     * to a callback as soon as it is read, instead of loading the whole result in memory.
+     * The query runs inside a read-only transaction with a forward-only cursor, so the
+     * database only sends a batch of rows each time the previous one has been consumed.
+     * The connection is held until the last row is processed, so the callback should be quick.
+     *
+     * @param sql the query to perform, with a '?' for each parameter.
+     * @param mapper function that builds an object from each row.
+     * @param action callback that receives the object built from each row.
+     * @param params values bound to the parameters of the query, in order.
+     * @param <T> type of the objects built from the rows.
+     * @throws PersistenceException if there was an error in the query execution
+     */
+    protected <T> void stream(String sql, RowMapper<T> mapper, Consumer<? super T> action, Object... params)
+            throws PersistenceException {
+        PooledConnection connection = borrow();
+        PreparedStatement statement = null;
+        try {
+            // the driver only uses a cursor outside autocommit mode
+            Connection session = connection.get();
+            session.setReadOnly(true);
+            session.setAutoCommit(false);
+
+            statement = connection.prepare(sql);
+            statement.setFetchSize(fetchSize);
+            bind(statement, params);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    action.accept(mapper.map(result));
+                }
+            }
+            session.commit();
+        } catch (SQLException e) {
+            connection.checkError(e);
+            throw new PersistenceException("Failed to retrieve data from the database", e);
+        } finally {
+            // the statement stays cached, so the other queries must not inherit the fetch size
+            if (statement != null) {
+                try {
+                    statement.setFetchSize(0);
+                } catch (SQLException ignored) {
+                    // a closed statement is prepared again the next time it is used
+                }
+            }
+            // the pool resets the read-only flag once the transaction has ended
+            pool.release(connection);
         }
     }
 
     /**
      * Method that performs a given update to the database.
-     * @param cmd the update to perform.
+     *
+     * @param sql the update to perform, with a '?' for each parameter.
+     * @param params values bound to the parameters of the update, in order.
      * @return the number of rows affected by the update.
      * @throws PersistenceException if there was an error in the update execution
      */
-    protected int update(String cmd) throws PersistenceException {
+    protected int update(String sql, Object... params) throws PersistenceException {
+        PooledConnection connection = borrow();
+        try {
+            PreparedStatement statement = connection.prepare(sql);
+            bind(statement, params);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            connection.checkError(e);
+            throw new PersistenceException("Failed to update data from the database", e);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Method that runs several statements as a single transaction.
+     * The transaction is committed if the work completes, and rolled back if it throws.
+     *
+     * @param work statements to run, through the given {@link Transaction}.
+     * @param <T> type of the result of the work.
+     * @return the result of the work.
+     * @throws PersistenceException if there was an error in the work or the transaction.
+     */
+    protected <T> T transaction(TransactionWork<T> work) throws PersistenceException {
+        PooledConnection connection = borrow();
         try {
-            return db.createStatement().executeUpdate(cmd);
+            Connection session = connection.get();
+            session.setAutoCommit(false);
+            T result = work.execute(new Transaction(connection));
+            session.commit();
+            return result;
         } catch (SQLException e) {
+            connection.checkError(e);
             throw new PersistenceException("Failed to update data from the database", e);
+        } finally {
+            // the pool rolls back any transaction that was not committed
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Method that closes every connection to the database.
+     */
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * Method that borrows a connection from the pool.
+     *
+     * @return a connection to the database.
+     * @throws PersistenceException if no connection could be obtained.
+     */
+    private PooledConnection borrow() throws PersistenceException {
+        try {
+            return pool.borrow();
+        } catch (SQLException e) {
+            throw new PersistenceException("Failed to establish connection to the database", e);
+        }
+    }
+
+    /**
+     * Method that binds the given values to the parameters of a statement.
+     *
+     * @param statement statement whose parameters will be set.
+     * @param params values to bind, in order.
+     * @throws SQLException if a value could not be bound.
+     */
+    private static void bind(PreparedStatement statement, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
         }
     }
-}
\ No newline at end of file
+}
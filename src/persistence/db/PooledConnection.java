@@ -0,0 +1,225 @@
+package persistence.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class that wraps a physical {@link Connection} managed by the {@link ConnectionPool}.
+ * It keeps track of when the connection was last used and who borrowed it, so the pool
+ * can evict idle connections and report leaked ones, and caches the prepared statements
+ * created on it so the database does not parse and plan the same query again.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+class PooledConnection {
+
+    /**
+     * SQL state class used by JDBC drivers to report connection failures.
+     */
+    private static final String CONNECTION_ERROR_STATE = "08";
+    /**
+     * Physical connection to the database.
+     */
+    private final Connection connection;
+    /**
+     * Prepared statements created on this connection, least recently used first.
+     */
+    private final Map<String, PreparedStatement> statements;
+    /**
+     * Moment (in milliseconds) the connection was last returned to the pool.
+     */
+    private long lastUsed;
+    /**
+     * Moment (in milliseconds) the connection was borrowed from the pool.
+     */
+    private long borrowedAt;
+    /**
+     * Stack trace of the code that borrowed the connection, null if leak detection is disabled.
+     */
+    private Throwable borrowSite;
+    /**
+     * Boolean values representing the state of the connection.
+     */
+    private boolean leakReported;
+    private boolean broken;
+
+    /**
+     * Constructor method of PooledConnection.
+     *
+     * @param connection physical connection to wrap.
+     * @param statementCacheSize maximum number of prepared statements kept open.
+     */
+    PooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.lastUsed = System.currentTimeMillis();
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > statementCacheSize) {
+                    closeStatement(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Getter method that returns the physical connection.
+     *
+     * @return the wrapped connection.
+     */
+    Connection get() {
+        return connection;
+    }
+
+    /**
+     * Method that returns a prepared statement for the given SQL, reusing the cached one if present.
+     *
+     * @param sql parameterized SQL of the statement.
+     * @return the prepared statement, owned by this connection.
+     * @throws SQLException if the statement could not be prepared.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Method that records that the connection has been handed out.
+     *
+     * @param trackSite whether the borrowing stack trace must be recorded for leak detection.
+     */
+    void markBorrowed(boolean trackSite) {
+        borrowedAt = System.currentTimeMillis();
+        borrowSite = trackSite ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+    }
+
+    /**
+     * Method that records that the connection has been given back to the pool.
+     */
+    void markReturned() {
+        lastUsed = System.currentTimeMillis();
+        borrowSite = null;
+    }
+
+    /**
+     * Method that checks an error raised while using the connection and flags the connection
+     * as broken if the error means the session with the database was lost.
+     *
+     * @param e error raised while using the connection.
+     */
+    void checkError(SQLException e) {
+        String state = e.getSQLState();
+        if (state != null && state.startsWith(CONNECTION_ERROR_STATE)) {
+            broken = true;
+        }
+    }
+
+    /**
+     * Method that checks whether the connection can still be used.
+     *
+     * @param timeoutSeconds seconds to wait for the database to answer.
+     * @return true if the connection is alive, false otherwise.
+     */
+    boolean isValid(int timeoutSeconds) {
+        if (broken) {
+            return false;
+        }
+        try {
+            return connection.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Method that returns whether the connection has failed and must not be reused.
+     *
+     * @return true if the connection is broken or closed.
+     */
+    boolean isBroken() {
+        if (broken) {
+            return true;
+        }
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Method that closes the physical connection, ignoring any error.
+     */
+    void close() {
+        statements.values().forEach(PooledConnection::closeStatement);
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {}
+    }
+
+    /**
+     * Method that closes a cached statement, ignoring any error.
+     *
+     * @param statement statement to close.
+     */
+    private static void closeStatement(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {}
+    }
+
+    /**
+     * Getter method that returns when the connection was last returned to the pool.
+     *
+     * @return time in milliseconds.
+     */
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * Getter method that returns when the connection was borrowed.
+     *
+     * @return time in milliseconds.
+     */
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    /**
+     * Getter method that returns the stack trace of the code that borrowed the connection.
+     *
+     * @return the borrowing stack trace, null if it was not recorded.
+     */
+    Throwable getBorrowSite() {
+        return borrowSite;
+    }
+
+    /**
+     * Method that returns whether the connection has already been reported as leaked.
+     *
+     * @return true if a leak warning was already emitted for the current borrow.
+     */
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    /**
+     * Method that marks the connection as reported as leaked.
+     */
+    void setLeakReported() {
+        leakReported = true;
+    }
+}
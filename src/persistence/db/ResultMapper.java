@@ -0,0 +1,18 @@
+package persistence.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Functional interface that converts a whole {@link ResultSet} into a single object,
+ * for results whose rows must be combined, such as a header repeated on every joined row.
+ *
+ * @param <T> type of the object built from the result.
+ * @author Group 6
+ * @version 1.0
+ */
+@FunctionalInterface
+interface ResultMapper<T> {
+
+    T map(ResultSet result) throws SQLException;
+}
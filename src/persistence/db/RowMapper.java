@@ -0,0 +1,17 @@
+package persistence.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Functional interface that converts the current row of a {@link ResultSet} into an object.
+ *
+ * @param <T> type of the object built from each row.
+ * @author Group 6
+ * @version 1.0
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+
+    T map(ResultSet row) throws SQLException;
+}
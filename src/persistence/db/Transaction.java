@@ -0,0 +1,100 @@
+package persistence.db;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that runs statements on the connection of a transaction opened by {@link Database#transaction}.
+ * Every statement run through it is committed or rolled back together.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+class Transaction {
+
+    /**
+     * Connection the transaction runs on.
+     */
+    private final PooledConnection connection;
+
+    /**
+     * Constructor method of Transaction.
+     *
+     * @param connection connection the transaction runs on, with autocommit disabled.
+     */
+    Transaction(PooledConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Method that performs a query inside the transaction and maps every row of the result.
+     *
+     * @param sql the query to perform, with a '?' for each parameter.
+     * @param mapper function that builds an object from each row.
+     * @param params values bound to the parameters of the query, in order.
+     * @param <T> type of the objects built from the rows.
+     * @return List with one object per row, empty if there were no results.
+     * @throws SQLException if there was an error in the query execution.
+     */
+    <T> List<T> query(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        PreparedStatement statement = prepare(sql, params);
+        try (ResultSet result = statement.executeQuery()) {
+            List<T> rows = new ArrayList<>();
+            while (result.next()) {
+                rows.add(mapper.map(result));
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Method that performs an update inside the transaction.
+     *
+     * @param sql the update to perform, with a '?' for each parameter.
+     * @param params values bound to the parameters of the update, in order.
+     * @return the number of rows affected by the update.
+     * @throws SQLException if there was an error in the update execution.
+     */
+    int update(String sql, Object... params) throws SQLException {
+        return prepare(sql, params).executeUpdate();
+    }
+
+    /**
+     * Method that performs the same update inside the transaction once for every set of parameters,
+     * sending them to the database as a single batch.
+     *
+     * @param sql the update to perform, with a '?' for each parameter.
+     * @param rows values bound to the parameters of each execution, in order.
+     * @return the number of rows affected by each execution.
+     * @throws SQLException if there was an error in the update execution.
+     */
+    int[] batch(String sql, List<Object[]> rows) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        for (Object[] params : rows) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            statement.addBatch();
+        }
+        return statement.executeBatch();
+    }
+
+    /**
+     * Method that prepares a statement on the connection and binds its parameters.
+     *
+     * @param sql statement to prepare.
+     * @param params values to bind, in order.
+     * @return the prepared statement.
+     * @throws SQLException if the statement could not be prepared.
+     */
+    private PreparedStatement prepare(String sql, Object... params) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
+        }
+        return statement;
+    }
+}
@@ -0,0 +1,18 @@
+package persistence.db;
+
+import persistence.exceptions.PersistenceException;
+
+import java.sql.SQLException;
+
+/**
+ * Functional interface representing the statements to run inside a {@link Transaction}.
+ *
+ * @param <T> type of the result of the work.
+ * @author Group 6
+ * @version 1.0
+ */
+@FunctionalInterface
+interface TransactionWork<T> {
+
+    T execute(Transaction transaction) throws SQLException, PersistenceException;
+}
@@ -0,0 +1,214 @@
+package persistence.files;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that reads the PCM data of a WAV file straight from a memory mapping of the file.
+ * The data is served by the page cache without intermediate buffers, and skipping or
+ * rewinding only moves the position in the mapping, whatever the distance.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+class MappedWavStream extends InputStream {
+
+    /**
+     * WAV format codes of plain PCM data and of the extensible format.
+     */
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    /**
+     * Mapped PCM data of the file.
+     */
+    private final ByteBuffer data;
+    /**
+     * Position saved by {@link #mark(int)}.
+     */
+    private int markPosition;
+
+    /**
+     * Constructor method of MappedWavStream.
+     *
+     * @param data mapped PCM data of the file.
+     */
+    private MappedWavStream(ByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Method that maps a WAV file and opens its PCM data as an audio stream.
+     *
+     * @param file WAV file to open.
+     * @return AudioInputStream over the mapped data, null if the file is not an uncompressed PCM WAV
+     *         that can be mapped, in which case it has to be read in another way.
+     * @throws IOException if the file could not be read.
+     */
+    static AudioInputStream open(Path file) throws IOException {
+
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        ByteBuffer header = mapping.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (header.remaining() < 12 || header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) {
+            return null; // not "RIFF" ... "WAVE"
+        }
+
+        AudioFormat format = null;
+        header.position(12);
+        while (header.remaining() >= 8) {
+            int id = header.getInt();
+            long size = header.getInt() & 0xFFFFFFFFL;
+            int start = header.position();
+
+            if (id == 0x20746D66) { // "fmt "
+                if (size < 16) {
+                    return null;
+                }
+                format = parseFormat(header, size);
+                if (format == null) {
+                    return null;
+                }
+            }
+            else if (id == 0x61746164) { // "data"
+                if (format == null) {
+                    return null;
+                }
+                // streamed files may leave the size unset, so it is limited to what the file really holds
+                int length = (int) Math.min(size, header.limit() - start);
+                length -= length % format.getFrameSize();
+                ByteBuffer data = mapping.duplicate().position(start).limit(start + length).slice();
+                return new AudioInputStream(new MappedWavStream(data), format, length / format.getFrameSize());
+            }
+
+            long next = start + size + (size & 1);
+            if (next > header.limit()) {
+                return null;
+            }
+            header.position((int) next);
+        }
+        return null;
+    }
+
+    /**
+     * Method that builds the audio format described by a "fmt " chunk.
+     *
+     * @param header buffer positioned at the start of the chunk data.
+     * @param size size of the chunk data.
+     * @return the audio format, null if the data is not uncompressed PCM.
+     */
+    private static AudioFormat parseFormat(ByteBuffer header, long size) {
+        int start = header.position();
+        int code = header.getShort(start) & 0xFFFF;
+        int channels = header.getShort(start + 2) & 0xFFFF;
+        int sampleRate = header.getInt(start + 4);
+        int blockAlign = header.getShort(start + 12) & 0xFFFF;
+        int bits = header.getShort(start + 14) & 0xFFFF;
+
+        if (code == WAVE_FORMAT_EXTENSIBLE && size >= 40) {
+            // the sub format GUID starts with the actual format code
+            code = header.getShort(start + 24) & 0xFFFF;
+        }
+        if (code != WAVE_FORMAT_PCM || channels == 0 || blockAlign == 0 || bits == 0) {
+            return null;
+        }
+        AudioFormat.Encoding encoding = bits <= 8 ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+        return new AudioFormat(encoding, sampleRate, bits, channels, blockAlign, sampleRate, false);
+    }
+
+    /**
+     * Method that reads the next byte of audio data.
+     *
+     * @return the next byte, or -1 at the end of the data.
+     */
+    @Override
+    public int read() {
+        return data.hasRemaining() ? data.get() & 0xFF : -1;
+    }
+
+    /**
+     * Method that copies audio data from the mapping into an array.
+     *
+     * @param b array the data is copied to.
+     * @param off offset in the array.
+     * @param len maximum number of bytes to read.
+     * @return number of bytes read, or -1 at the end of the data.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!data.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(len, data.remaining());
+        data.get(b, off, count);
+        return count;
+    }
+
+    /**
+     * Method that skips audio data by moving the position in the mapping.
+     *
+     * @param n number of bytes to skip.
+     * @return number of bytes skipped.
+     */
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, data.remaining()));
+        data.position(data.position() + count);
+        return count;
+    }
+
+    /**
+     * Method that returns the number of bytes left in the data.
+     *
+     * @return number of bytes.
+     */
+    @Override
+    public int available() {
+        return data.remaining();
+    }
+
+    /**
+     * Method that returns whether the stream can be rewound, which it always can.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Method that saves the current position.
+     *
+     * @param readLimit ignored, the whole data stays available.
+     */
+    @Override
+    public synchronized void mark(int readLimit) {
+        markPosition = data.position();
+    }
+
+    /**
+     * Method that goes back to the position saved by {@link #mark(int)}.
+     */
+    @Override
+    public synchronized void reset() {
+        data.position(markPosition);
+    }
+}
@@ -0,0 +1,239 @@
+package persistence.files;
+
+import javazoom.jl.decoder.*;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Class that decodes an MP3 file into 16-bit PCM one frame at a time, as it is read,
+ * so compressed songs can be played without being expanded on disk or in memory.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+class Mp3AudioStream extends InputStream {
+
+    /**
+     * Bitstream the compressed frames are read from.
+     */
+    private final Bitstream bitstream;
+    /**
+     * Decoder that turns each frame into samples.
+     */
+    private final Decoder decoder;
+    /**
+     * Samples of the last decoded frame, as little-endian bytes.
+     */
+    private byte[] buffer;
+    /**
+     * Position of the next byte to read from the buffer and number of valid bytes in it.
+     */
+    private int position;
+    private int limit;
+    /**
+     * Whether the last frame has been decoded.
+     */
+    private boolean finished;
+
+    /**
+     * Constructor method of Mp3AudioStream.
+     *
+     * @param in stream with the MP3 data.
+     */
+    private Mp3AudioStream(InputStream in) {
+        this.bitstream = new Bitstream(new BufferedInputStream(in));
+        this.decoder = new Decoder();
+        this.buffer = new byte[0];
+    }
+
+    /**
+     * Method that opens an MP3 file as an audio stream decoded on the fly.
+     * The headers of the file are scanned first to know its format and length, without decoding it.
+     *
+     * @param file MP3 file to open.
+     * @return AudioInputStream with the decoded audio data.
+     * @throws IOException if the file could not be read or is not a valid MP3 file.
+     */
+    static AudioInputStream open(Path file) throws IOException {
+        Info info = scan(file);
+        AudioFormat format = new AudioFormat(info.sampleRate, 16, info.channels, true, false);
+        return new AudioInputStream(new Mp3AudioStream(Files.newInputStream(file)), format, info.samples);
+    }
+
+    /**
+     * Method that returns the duration of an MP3 file from the headers of its frames.
+     *
+     * @param file MP3 file to measure.
+     * @return duration in seconds.
+     * @throws IOException if the file could not be read or is not a valid MP3 file.
+     */
+    static float getDuration(Path file) throws IOException {
+        Info info = scan(file);
+        return (float) info.samples / info.sampleRate;
+    }
+
+    /**
+     * Method that reads the headers of every frame of an MP3 file, skipping their data.
+     *
+     * @param file MP3 file to scan.
+     * @return the format and number of samples per channel of the file.
+     * @throws IOException if the file could not be read or is not a valid MP3 file.
+     */
+    private static Info scan(Path file) throws IOException {
+        Bitstream bitstream = new Bitstream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            Info info = new Info();
+            Header header;
+            while ((header = bitstream.readFrame()) != null) {
+                if (info.sampleRate == 0) {
+                    info.sampleRate = header.frequency();
+                    info.channels = header.mode() == Header.SINGLE_CHANNEL ? 1 : 2;
+                }
+                info.samples += samplesPerFrame(header);
+                bitstream.closeFrame();
+            }
+            if (info.sampleRate == 0) {
+                throw new IOException("No MP3 frames found in " + file);
+            }
+            return info;
+        } catch (BitstreamException e) {
+            throw new IOException("Failed to read MP3 file " + file, e);
+        } finally {
+            try {
+                bitstream.close();
+            } catch (BitstreamException ignored) {}
+        }
+    }
+
+    /**
+     * Method that returns the number of samples per channel encoded in a frame.
+     *
+     * @param header header of the frame.
+     * @return number of samples.
+     */
+    private static int samplesPerFrame(Header header) {
+        return switch (header.layer()) {
+            case 1 -> 384;
+            case 2 -> 1152;
+            default -> header.version() == Header.MPEG1 ? 1152 : 576;
+        };
+    }
+
+    /**
+     * Method that decodes the next frame into the buffer.
+     *
+     * @return false if there are no more frames.
+     * @throws IOException if a frame could not be decoded.
+     */
+    private boolean decodeFrame() throws IOException {
+        while (!finished) {
+            try {
+                Header header = bitstream.readFrame();
+                if (header == null) {
+                    finished = true;
+                    break;
+                }
+                SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+                bitstream.closeFrame();
+
+                short[] samples = output.getBuffer();
+                int length = output.getBufferLength();
+                if (buffer.length < length * 2) {
+                    buffer = new byte[length * 2];
+                }
+                for (int i = 0; i < length; i++) {
+                    buffer[2 * i] = (byte) samples[i];
+                    buffer[2 * i + 1] = (byte) (samples[i] >> 8);
+                }
+                position = 0;
+                limit = length * 2;
+                if (limit > 0) {
+                    return true;
+                }
+            } catch (JavaLayerException e) {
+                throw new IOException("Failed to decode MP3 frame", e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that reads the next byte of decoded audio.
+     *
+     * @return the next byte, or -1 at the end of the song.
+     * @throws IOException if a frame could not be decoded.
+     */
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !decodeFrame()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Method that reads decoded audio into an array, decoding frames as needed.
+     *
+     * @param b array the data is copied to.
+     * @param off offset in the array.
+     * @param len maximum number of bytes to read.
+     * @return number of bytes read, or -1 at the end of the song.
+     * @throws IOException if a frame could not be decoded.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < len) {
+            if (position == limit && !decodeFrame()) {
+                break;
+            }
+            int count = Math.min(len - read, limit - position);
+            System.arraycopy(buffer, position, b, off + read, count);
+            position += count;
+            read += count;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    /**
+     * Method that returns the number of decoded bytes that can be read without decoding another frame.
+     *
+     * @return number of bytes.
+     */
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    /**
+     * Method that closes the MP3 file.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            bitstream.close();
+        } catch (BitstreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Format and length of an MP3 file.
+     */
+    private static class Info {
+        private float sampleRate;
+        private int channels;
+        private long samples;
+    }
+}
@@ -0,0 +1,66 @@
+package persistence.files;
+
+import java.nio.file.Path;
+
+/**
+ * Class that represents a song file that has been imported into the song directory
+ * but is not yet stored under the id of its song.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class SongFile {
+
+    /**
+     * Temporary file holding the audio data of the song.
+     */
+    private final Path path;
+    /**
+     * Extension the file must be stored with, which tells how its audio data is encoded.
+     */
+    private final String extension;
+    /**
+     * Duration of the song in seconds.
+     */
+    private final float duration;
+
+    /**
+     * Constructor method of SongFile.
+     *
+     * @param path temporary file holding the audio data of the song.
+     * @param extension extension the file must be stored with.
+     * @param duration duration of the song in seconds.
+     */
+    SongFile(Path path, String extension, float duration) {
+        this.path = path;
+        this.extension = extension;
+        this.duration = duration;
+    }
+
+    /**
+     * Getter method that returns the temporary file holding the audio data.
+     *
+     * @return absolute path of the file.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Getter method that returns the extension the file must be stored with.
+     *
+     * @return the extension, including the dot.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Getter method that returns the duration of the song.
+     *
+     * @return duration in seconds.
+     */
+    public float getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,244 @@
+package persistence.files;
+
+import javazoom.jl.converter.Converter;
+import javazoom.jl.decoder.JavaLayerException;
+import persistence.exceptions.PersistenceException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class that manages the audio files of the songs stored in the song directory.
+ * Each MP3 file is either expanded to WAV or kept compressed, as chosen when it is imported,
+ * and the extension of its stored file records that choice.
+ *
+ * @author Group 6
+ * @version 1.0
+ */
+public class SongStorage {
+
+    /**
+     * Logger used to report files that could not be removed.
+     */
+    private static final Logger LOGGER = Logger.getLogger(SongStorage.class.getName());
+    /**
+     * Constant path to the song directory.
+     */
+    private static final Path SONGS_DIR = Paths.get("files/songs/");
+    /**
+     * Extensions of the stored song files, expanded PCM or the original compressed data.
+     */
+    private static final String PCM = ".wav";
+    private static final String COMPRESSED = ".mp3";
+    /**
+     * Executor that removes deleted songs' files in the background, shared by every instance.
+     */
+    private static final ExecutorService CLEANER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "song-file-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor method that creates the song directory if it does not exist.
+     *
+     * @throws PersistenceException if there was an error creating the song directory.
+     */
+    public SongStorage() throws PersistenceException {
+        try {
+            Files.createDirectories(SONGS_DIR);
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to create the songs directory", e);
+        }
+    }
+
+    /**
+     * Method that returns the path where the audio file of a song is stored.
+     *
+     * @param songId id of the song.
+     * @param file imported file of the song.
+     * @return absolute path of the song's audio file.
+     */
+    public Path getSongFile(int songId, SongFile file) {
+        return SONGS_DIR.resolve(songId + file.getExtension()).toAbsolutePath();
+    }
+
+    /**
+     * Method that returns the audio files a song may be stored in, one per storage format.
+     *
+     * @param songId id of the song.
+     * @return absolute paths of the song's possible audio files.
+     */
+    private static List<Path> getSongFiles(int songId) {
+        return List.of(
+                SONGS_DIR.resolve(songId + PCM).toAbsolutePath(),
+                SONGS_DIR.resolve(songId + COMPRESSED).toAbsolutePath()
+        );
+    }
+
+    /**
+     * Method that opens the audio data of a song.
+     * Songs stored compressed are decoded as the returned stream is read, and WAV files are
+     * memory mapped, so seeking in them is immediate and repeated plays are served by the page cache.
+     *
+     * @param songId id of the song.
+     * @return AudioInputStream with the PCM audio data of the song.
+     * @throws PersistenceException if the song file could not be read.
+     */
+    public AudioInputStream openAudio(int songId) throws PersistenceException {
+        Path compressed = SONGS_DIR.resolve(songId + COMPRESSED).toAbsolutePath();
+        Path pcm = SONGS_DIR.resolve(songId + PCM).toAbsolutePath();
+        try {
+            if (Files.exists(compressed)) {
+                return Mp3AudioStream.open(compressed);
+            }
+            AudioInputStream mapped = MappedWavStream.open(pcm);
+            if (mapped != null) {
+                return mapped;
+            }
+            return AudioSystem.getAudioInputStream(pcm.toFile());
+        } catch (UnsupportedAudioFileException | IOException e) {
+            throw new PersistenceException("Failed to read song audio data", e);
+        }
+    }
+
+    /**
+     * Method that creates an empty file, with a unique name, where a song can be imported before being stored.
+     *
+     * @param extension extension of the file.
+     * @return absolute path of the temporary file.
+     * @throws PersistenceException if the file could not be created.
+     */
+    private Path createTempFile(String extension) throws PersistenceException {
+        try {
+            return Files.createTempFile(SONGS_DIR, "import-", extension).toAbsolutePath();
+        } catch (IOException e) {
+            throw new PersistenceException("Failed to create a temporary song file", e);
+        }
+    }
+
+    /**
+     * Method that imports a song file into a new temporary file of the song directory.
+     * WAV files are copied as they are. MP3 files are either copied too, if they are to be kept
+     * compressed, or decoded into WAV otherwise.
+     * Every call uses its own file, so several songs can be imported at the same time.
+     *
+     * @param songPath path to the song file to import.
+     * @param keepCompressed true to store an MP3 file as it is and decode it when played,
+     *                       false to expand it to WAV now.
+     * @return the imported file along with the duration of the song.
+     * @throws PersistenceException if the file could not be read, converted or copied.
+     */
+    public SongFile importFile(String songPath, boolean keepCompressed) throws PersistenceException {
+
+        if (!songPath.endsWith(COMPRESSED) && !songPath.endsWith(PCM)) {
+            throw new PersistenceException("Unsupported file format, only .mp3 and .wav are supported");
+        }
+
+        boolean compressed = songPath.endsWith(COMPRESSED) && keepCompressed;
+        Path tmpFile = createTempFile(compressed ? COMPRESSED : PCM);
+        try {
+            if (songPath.endsWith(COMPRESSED) && !compressed) {
+                Converter converter = new Converter();
+                try {
+                    converter.convert(songPath, tmpFile.toString());
+                } catch (JavaLayerException e) {
+                    throw new PersistenceException("Failed to convert the mp3 file", e);
+                }
+            }
+            else {
+                try {
+                    Files.copy(Paths.get(songPath), tmpFile, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    throw new PersistenceException("Failed to import song file", e);
+                }
+            }
+
+            float duration;
+            if (compressed) {
+                try {
+                    duration = Mp3AudioStream.getDuration(tmpFile);
+                } catch (IOException e) {
+                    throw new PersistenceException("Failed to read song file", e);
+                }
+            }
+            else {
+                File songFile = tmpFile.toFile();
+                try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(songFile)) {
+                    AudioFormat format = audioInputStream.getFormat();
+                    duration = (songFile.length() / (format.getFrameSize() * format.getFrameRate()));
+                } catch (UnsupportedAudioFileException | IOException e) {
+                    throw new PersistenceException("Failed to read song file", e);
+                }
+            }
+            return new SongFile(tmpFile, compressed ? COMPRESSED : PCM, duration);
+        } catch (PersistenceException e) {
+            discard(tmpFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Method that removes a file from the song directory right away, ignoring any error.
+     *
+     * @param file file to remove.
+     */
+    public void discard(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to remove " + file, e);
+        }
+    }
+
+    /**
+     * Method that returns the space taken by the audio files of the given songs.
+     *
+     * @param songIds ids of the songs.
+     * @return total size of the files in bytes, missing files are ignored.
+     */
+    public long getSize(Collection<Integer> songIds) {
+        long bytes = 0;
+        for (int songId : songIds) {
+            for (Path file : getSongFiles(songId)) {
+                try {
+                    bytes += Files.size(file);
+                } catch (IOException ignored) {}
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Method that removes the audio files of the given songs in the background, as a single batch.
+     *
+     * @param songIds ids of the songs whose files will be removed.
+     */
+    public void deleteLater(Collection<Integer> songIds) {
+        if (songIds.isEmpty()) {
+            return;
+        }
+        List<Integer> batch = List.copyOf(songIds);
+        CLEANER.execute(() -> {
+            for (int songId : batch) {
+                for (Path file : getSongFiles(songId)) {
+                    discard(file);
+                }
+            }
+        });
+    }
+}
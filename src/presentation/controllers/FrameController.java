@@ -8,6 +8,8 @@ import presentation.views.media.player.PlayerUI;
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Stack;
 
 /**
@@ -29,6 +31,10 @@ public class FrameController implements ActionListener {
      * String representing the label of the current screen being displayed.
      */
     private String currentScreen;
+    /**
+     * Map of the actions that build the cards not built yet, by tag.
+     */
+    private final Map<String, Runnable> lazyCards;
 
     /**
      * Constructor method for AddSongController.
@@ -38,6 +44,7 @@ public class FrameController implements ActionListener {
     public FrameController(MainFrame mainFrame) {
         this.mainFrame = mainFrame;
         previousScreen = new Stack<>();
+        lazyCards = new HashMap<>();
     }
 
     /**
@@ -57,13 +64,13 @@ public class FrameController implements ActionListener {
     @Override
     public void actionPerformed(ActionEvent e) {
         switch(e.getActionCommand()) {
-            default -> mainFrame.selectScreen(e.getActionCommand());
+            default -> selectScreen(e.getActionCommand());
             case Globals.JB_BACK -> {
                 mainFrame.setTopVisibility(true);
                 Screen previousScreen = getPreviousScreen();
                 Screen currentScreen = mainFrame.getCurrentCard();
                 currentScreen.clearFields();
-                mainFrame.selectScreen(previousScreen.getTag());
+                selectScreen(previousScreen.getTag());
                 previousScreen.clearFields();
             }
 
@@ -72,7 +79,7 @@ public class FrameController implements ActionListener {
                 Screen currentScreen = mainFrame.getCurrentCard();
                 currentScreen.clearFields();
                 previousScreen.add(currentScreen);
-                mainFrame.selectScreen(Globals.LOG_OUT);
+                selectScreen(Globals.LOG_OUT);
             }
         }
     }
@@ -87,6 +94,29 @@ public class FrameController implements ActionListener {
         mainFrame.addCard(panel, tag);
     }
 
+    /**
+     * Method that registers a card that is only built the first time it is displayed.
+     *
+     * @param tag String indicating the label to be attached to the card.
+     * @param builder action that builds the card and registers it through {@link #addCard(JPanel, String)}.
+     */
+    public void addLazyCard(String tag, Runnable builder){
+        lazyCards.put(tag, builder);
+    }
+
+    /**
+     * Method that displays a card, building it first if it has not been built yet.
+     *
+     * @param tag String indicating the label of the card.
+     */
+    private void selectScreen(String tag){
+        Runnable builder = lazyCards.remove(tag);
+        if (builder != null) {
+            builder.run();
+        }
+        mainFrame.selectScreen(tag);
+    }
+
     /**
      * Method that sets the player attribute of the mainFrame.
      *
@@ -123,7 +153,7 @@ public class FrameController implements ActionListener {
     public void swapScreen(Screen currentScreen, String nextScreen){
         this.currentScreen = nextScreen;
         setPreviousScreen(currentScreen);
-        mainFrame.selectScreen(nextScreen);
+        selectScreen(nextScreen);
     }
 
     /**
@@ -132,7 +162,7 @@ public class FrameController implements ActionListener {
      */
     public void forgetCurrentScreen(){
         currentScreen = getPreviousScreenTag();
-        mainFrame.selectScreen(getPreviousScreen().getTag());
+        selectScreen(getPreviousScreen().getTag());
     }
 
     /**
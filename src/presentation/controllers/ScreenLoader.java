@@ -0,0 +1,146 @@
+package presentation.controllers;
+
+import business.exceptions.BusinessException;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Class that loads the data of a screen in the background, so the screen can be shown right away.
+ * The items published by the load are passed to the screen in batches on the event dispatch thread,
+ * and starting a new load cancels the previous one, whose items and result are then ignored.
+ *
+ * @param <T> type of the result of a load.
+ * @param <V> type of the items published while loading.
+ * @author Group 6
+ * @version 1.0
+ */
+public class ScreenLoader<T, V> {
+
+    /**
+     * Handler of the batches of items published, on the event dispatch thread.
+     */
+    private final Consumer<List<V>> batchHandler;
+    /**
+     * Handler of the result of a load, on the event dispatch thread.
+     */
+    private final Consumer<T> resultHandler;
+    /**
+     * Handler of the error message of a failed load, on the event dispatch thread.
+     */
+    private final Consumer<String> errorHandler;
+    /**
+     * Load in progress, null if there is none.
+     */
+    private Worker current;
+
+    /**
+     * Constructor method of ScreenLoader.
+     *
+     * @param batchHandler handler of the batches of items published, null if the load publishes none.
+     * @param resultHandler handler of the result of a load.
+     * @param errorHandler handler of the error message of a failed load.
+     */
+    public ScreenLoader(Consumer<List<V>> batchHandler, Consumer<T> resultHandler, Consumer<String> errorHandler) {
+        this.batchHandler = batchHandler;
+        this.resultHandler = resultHandler;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Method that starts a load in the background, cancelling the one in progress.
+     * It must be called on the event dispatch thread.
+     *
+     * @param task work that loads the data.
+     */
+    public void load(Task<T, V> task) {
+        cancel();
+        current = new Worker(task);
+        current.execute();
+    }
+
+    /**
+     * Method that runs a single piece of work in the background, such as a change made from a screen,
+     * which no later load can cancel. It must be called on the event dispatch thread.
+     *
+     * @param task work to run.
+     * @param resultHandler handler of the result of the work.
+     * @param errorHandler handler of the error message of failed work.
+     * @param <T> type of the result of the work.
+     */
+    public static <T> void run(Task<T, Void> task, Consumer<T> resultHandler, Consumer<String> errorHandler) {
+        new ScreenLoader<T, Void>(null, resultHandler, errorHandler).load(task);
+    }
+
+    /**
+     * Method that cancels the load in progress, if any.
+     * It must be called on the event dispatch thread.
+     */
+    public void cancel() {
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+    }
+
+    /**
+     * Interface of the work that loads the data of a screen.
+     *
+     * @param <T> type of the result of the load.
+     * @param <V> type of the items published while loading.
+     */
+    @FunctionalInterface
+    public interface Task<T, V> {
+
+        T load(Consumer<V> publisher) throws BusinessException;
+    }
+
+    /**
+     * Class that runs a load on the threads of {@link SwingWorker}.
+     */
+    private class Worker extends SwingWorker<T, V> {
+
+        private final Task<T, V> task;
+
+        private Worker(Task<T, V> task) {
+            this.task = task;
+        }
+
+        @Override
+        protected T doInBackground() throws BusinessException {
+            return task.load(item -> {
+                // stops a cancelled load in the middle of its data instead of reading it all
+                if (isCancelled()) {
+                    throw new CancellationException();
+                }
+                publish(item);
+            });
+        }
+
+        @Override
+        protected void process(List<V> batch) {
+            // the last batches can arrive after done(), but never after another load has started
+            if (batchHandler != null && !isCancelled() && (current == this || current == null)) {
+                batchHandler.accept(batch);
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (current != this || isCancelled()) {
+                return;
+            }
+            current = null;
+            try {
+                resultHandler.accept(get());
+            } catch (ExecutionException e) {
+                errorHandler.accept(e.getCause().getMessage());
+            } catch (InterruptedException | CancellationException ignored) {
+                // a cancelled load has been replaced by another one
+            }
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package presentation.controllers.media;
 
+import business.ImportListener;
+import business.SongImporter;
 import business.SongManager;
 import business.UserManager;
 import business.entities.Song;
-import business.exceptions.BusinessException;
 import presentation.Globals;
 import presentation.controllers.FrameController;
 import presentation.views.media.AddSongUI;
 
+import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * AddSongController class for the AddSongUI.
@@ -18,7 +21,7 @@ import java.util.ArrayList;
  * @author Group 6
  * @version 1.0
  */
-public class AddSongController extends MouseAdapter implements ActionListener {
+public class AddSongController extends MouseAdapter implements ActionListener, ImportListener {
     /**
      * FrameController instance to communicate with the main frame.
      */
@@ -32,9 +35,17 @@ public class AddSongController extends MouseAdapter implements ActionListener {
      */
     private final UserManager userManager;
     /**
-     * AddSongUI instance to display the fields to add a song.
+     * AddSongUI instance to display the fields to add a song, null until the screen is first displayed.
      */
-    private final AddSongUI ui;
+    private AddSongUI ui;
+    /**
+     * SongImporter instance of the import in progress, null if there is none.
+     */
+    private SongImporter importer;
+    /**
+     * String with the reason the last file of the current import failed.
+     */
+    private String lastError;
 
     /**
      * Constructor method for AddSongController.
@@ -47,10 +58,23 @@ public class AddSongController extends MouseAdapter implements ActionListener {
         this.frameController = frameController;
         this.songManager = songManager;
         this.userManager = userManager;
-        ui = new AddSongUI();
-        frameController.addCard(ui, Globals.ADD_SONG);
-        ui.setListeners(this);
-        ui.setName(Globals.ADD_SONG);
+        frameController.addLazyCard(Globals.ADD_SONG, this::getUi);
+    }
+
+    /**
+     * Method that returns the view, building it the first time.
+     *
+     * @return AddSongUI instance to display the fields to add a song.
+     */
+    private AddSongUI getUi() {
+        if (ui == null) {
+            ui = new AddSongUI();
+            frameController.addCard(ui, Globals.ADD_SONG);
+            ui.setListeners(this);
+            ui.setName(Globals.ADD_SONG);
+            ui.setKeepCompressed(songManager.isKeepCompressedByDefault());
+        }
+        return ui;
     }
 
     /**
@@ -59,7 +83,7 @@ public class AddSongController extends MouseAdapter implements ActionListener {
      * @return boolean indicating if none of the fields are empty
      */
     public boolean emptyFields(){
-        ArrayList<String> fields = ui.getFields();
+        ArrayList<String> fields = getUi().getFields();
         for (String field : fields) {
             if (field.equals("")) {
                 return true;
@@ -73,7 +97,7 @@ public class AddSongController extends MouseAdapter implements ActionListener {
      *
      */
     public void clearFields(){
-        ui.clearFields();
+        getUi().clearFields();
     }
 
     /**
@@ -85,20 +109,19 @@ public class AddSongController extends MouseAdapter implements ActionListener {
     public void actionPerformed(ActionEvent e) {
         switch (e.getActionCommand()){
             case Globals.JB_ADD_SONG -> {
-                try {
-                    if (emptyFields()) {
-                        frameController.showError("All fields are required");
-                    }
-                    else {
-                        Song song = ui.getSong(userManager.getCurrentUser());
-                        songManager.addSong(song, ui.getPath());
-                        ui.clearFields();
-                        frameController.showMessage("Song successfully created");
-                        frameController.swapScreen(ui, Globals.MAIN_SCREEN);
-                    }
-                } catch (BusinessException ex) {
-                    frameController.showError(ex.getMessage());
-                    ui.clearPath();
+                if (importer != null) {
+                    importer.cancel();
+                }
+                else if (emptyFields()) {
+                    frameController.showError("All fields are required");
+                }
+                else {
+                    List<String> paths = ui.getPaths();
+                    List<Song> songs = ui.getSongs(userManager.getCurrentUser());
+                    lastError = null;
+                    ui.setProgress(0, paths.size());
+                    // files are decoded and stored in the background so the frame stays responsive
+                    importer = songManager.importSongs(songs, paths, ui.isKeepCompressed(), this);
                 }
             }
             case Globals.JB_SELECT_FILE -> {
@@ -108,6 +131,63 @@ public class AddSongController extends MouseAdapter implements ActionListener {
         }
     }
 
+    /**
+     * ImportListener method that shows how many files of the import have been processed.
+     *
+     * @param processed number of files already processed.
+     * @param total number of files being imported.
+     */
+    @Override
+    public void importProgress(int processed, int total) {
+        SwingUtilities.invokeLater(() -> {
+            if (importer != null) {
+                ui.setProgress(processed, total);
+            }
+        });
+    }
+
+    /**
+     * ImportListener method that keeps the reason a file could not be imported.
+     *
+     * @param path path of the file that failed.
+     * @param reason String describing the error.
+     */
+    @Override
+    public void songFailed(String path, String reason) {
+        SwingUtilities.invokeLater(() -> lastError = reason);
+    }
+
+    /**
+     * ImportListener method that reports the result of the import once it is over.
+     *
+     * @param imported number of songs stored.
+     * @param failed number of files that could not be imported.
+     * @param cancelled whether the import was cancelled.
+     */
+    @Override
+    public void importFinished(int imported, int failed, boolean cancelled) {
+        SwingUtilities.invokeLater(() -> {
+            importer = null;
+            ui.clearProgress();
+            if (cancelled) {
+                frameController.showMessage("Import cancelled, %d songs were created".formatted(imported));
+            }
+            else if (failed > 0) {
+                ui.clearPath();
+                frameController.showError(imported > 0
+                        ? "%d songs created, %d could not be imported: %s".formatted(imported, failed, lastError)
+                        : lastError);
+            }
+            else {
+                frameController.showMessage(imported == 1 ? "Song successfully created" : "%d songs successfully created".formatted(imported));
+                if (frameController.getFrame().getCurrentCard() == ui) {
+                    ui.clearFields();
+                    frameController.swapScreen(ui, Globals.MAIN_SCREEN);
+                }
+            }
+        });
+    }
+
     /**
      * MouseListener method to process when the cursor is selecting one of the buttons
      *
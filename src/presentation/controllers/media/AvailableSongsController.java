@@ -1,23 +1,29 @@
 package presentation.controllers.media;
 
-import business.Observer;
 import business.SongManager;
-import business.entities.Song;
+import business.events.EventBus;
+import business.events.SongDeletedEvent;
+import business.events.SongPickRequestedEvent;
 import business.exceptions.BusinessException;
 import presentation.Globals;
 import presentation.controllers.FrameController;
+import presentation.controllers.ScreenLoader;
 import presentation.views.media.AvailableSongsUI;
 
+import javax.swing.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.List;
 /**
  * Controller class for the AvailableSongsUI.
  *
  * @author Group 6
  * @version 1.0
  */
-public class AvailableSongsController extends MouseAdapter implements Observer {
+public class AvailableSongsController extends MouseAdapter {
+    /**
+     * Milliseconds the search bar must stay unchanged before the songs are searched.
+     */
+    private static final int SEARCH_DELAY = 300;
     /**
      * SongManager instance to retrieve the stored songs.
      */
@@ -34,6 +40,14 @@ public class AvailableSongsController extends MouseAdapter implements Observer {
      * FrameController instance to communicate with the MainFrame.
      */
     private final FrameController frameController;
+    /**
+     * ScreenLoader instance that reads the songs in the background.
+     */
+    private final ScreenLoader<Void, String[]> loader;
+    /**
+     * Timer that searches the songs once the user stops typing.
+     */
+    private final Timer searchTimer;
 
     /**
      * Constructor method for AvailableSongsController.
@@ -42,33 +56,48 @@ public class AvailableSongsController extends MouseAdapter implements Observer {
      * @param songManager SongManager instance to retrieve the stored songs.
      * @param songDetailsController SongDetailsController instance to communicate with the SongDetails.
      * @param playlistSongsController PlaylistSongsController instance to communicate with the PlaylistSongs.
+     * @param events EventBus instance to know when the list of songs has to be refreshed.
      */
     public AvailableSongsController(SongManager songManager, FrameController frameController,
-                                    SongDetailsController songDetailsController, PlaylistSongsController playlistSongsController) {
+                                    SongDetailsController songDetailsController, PlaylistSongsController playlistSongsController,
+                                    EventBus events) {
         this.songManager = songManager;
         availableSongsUI = new AvailableSongsUI();
         this.frameController = frameController;
         this.songDetailsController = songDetailsController;
+        this.loader = new ScreenLoader<>(availableSongsUI::addSongs, result -> availableSongsUI.setLoading(false), message -> {
+            availableSongsUI.setLoading(false);
+            frameController.showError(message);
+        });
+        searchTimer = new Timer(SEARCH_DELAY, e -> updateSongs());
+        searchTimer.setRepeats(false);
+        availableSongsUI.setSearchListener(searchTimer::restart);
         availableSongsUI.setName(Globals.AVAILABLE_SONGS);
         availableSongsUI.setListeners(this);
         availableSongsUI.setListeners(playlistSongsController);
-        this.songDetailsController.attach(this);
         frameController.addCard(availableSongsUI, Globals.AVAILABLE_SONGS);
-        playlistSongsController.attach(this);
+        events.subscribe(SongDeletedEvent.class, SwingUtilities::invokeLater, true, event -> updateSongs());
+        events.subscribe(SongPickRequestedEvent.class, SwingUtilities::invokeLater, true, event -> updateSongs());
     }
 
     /**
-     * Method to update the songs table.
+     * Method to update the songs table with the songs matching the search bar, or every song if it is empty.
+     * The table is emptied and the songs are added in batches as they are read in the background.
      */
     public void updateSongs() {
-        try {
-            List<String[]> listSongs = songManager.getAllSongs();
-            Object[][] songs = new Object[listSongs.size()][6];
-            availableSongsUI.updateTable(songs, listSongs);
-
-        } catch (BusinessException e) {
-            frameController.showError(e.getMessage());
-        }
+        searchTimer.stop();
+        String text = availableSongsUI.getTitle().trim();
+        availableSongsUI.clearTable();
+        availableSongsUI.setLoading(true);
+        loader.load(publisher -> {
+            if (text.isEmpty()) {
+                songManager.forEachSong(publisher);
+            }
+            else {
+                songManager.forEachMatchingSong(text, publisher);
+            }
+            return null;
+        });
     }
 
     /**
@@ -84,16 +113,4 @@ public class AvailableSongsController extends MouseAdapter implements Observer {
             availableSongsUI.clearFields();
         }
     }
-
-    @Override
-    public void update(String message, Song song) {}
-
-    /**
-     * Method to update the songs table.
-     */
-    @Override
-    public void update() {
-        updateSongs();
-    }
-
 }
\ No newline at end of file
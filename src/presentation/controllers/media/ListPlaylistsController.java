@@ -1,14 +1,16 @@
 package presentation.controllers.media;
 
-import business.Observer;
 import business.PlaylistManager;
 import business.UserManager;
-import business.entities.Song;
+import business.events.EventBus;
+import business.events.PlaylistDeletedEvent;
 import business.exceptions.BusinessException;
 import presentation.Globals;
 import presentation.controllers.FrameController;
+import presentation.controllers.ScreenLoader;
 import presentation.views.media.ListPlaylistsUI;
 
+import javax.swing.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 
@@ -18,7 +20,7 @@ import java.awt.event.MouseEvent;
  * @author Group 6
  * @version 1.0
  */
-public class ListPlaylistsController extends MouseAdapter implements Observer {
+public class ListPlaylistsController extends MouseAdapter {
     /**
      * Object of the view to be controlled.
      */
@@ -39,6 +41,10 @@ public class ListPlaylistsController extends MouseAdapter implements Observer {
      * Object of the main view controller.
      */
     private final FrameController frameController;
+    /**
+     * Object that loads the playlists in the background.
+     */
+    private final ScreenLoader<String[][], Void> loader;
 
     /**
      * Constructor method of ListPlaylistsController.
@@ -49,32 +55,37 @@ public class ListPlaylistsController extends MouseAdapter implements Observer {
      * @param playlistManager object of the playlist manager.
      * @param playlistSongsController object of the PlaylistSongsUI controller.
      * @param userManager object of the user manager.
+     * @param events object of the event bus, to know when the playlists have to be refreshed.
      */
     public ListPlaylistsController(FrameController frameController, PlaylistManager playlistManager,
-                                   PlaylistSongsController playlistSongsController, UserManager userManager){
+                                   PlaylistSongsController playlistSongsController, UserManager userManager,
+                                   EventBus events){
         this.playlistManager = playlistManager;
         this.playlistSongsController = playlistSongsController;
-        this.playlistSongsController.attach(this);
         this.frameController = frameController;
         this.userManager = userManager;
         ui = new ListPlaylistsUI();
+        loader = new ScreenLoader<>(null, playlists -> {
+            ui.setLoading(false);
+            ui.updatePlaylists(playlists, userManager.getCurrentUser());
+        }, message -> {
+            ui.setLoading(false);
+            frameController.showError(message);
+        });
         ui.setName(Globals.AVAILABLE_PLAYLISTS);
         ui.setListeners(this);
         frameController.addCard(ui, Globals.AVAILABLE_PLAYLISTS);
+        events.subscribe(PlaylistDeletedEvent.class, SwingUtilities::invokeLater, true, event -> updatePlaylistsData());
     }
 
     /**
      * Method that passes all the information necessary for the playlists tables to update.
+     * The playlists are read in the background and the tables are updated when they arrive.
      *
      */
     public void updatePlaylistsData(){
-        try {
-            String[][] allPlaylistsRaw = playlistManager.getAllPlaylists();
-            ui.updatePlaylists(allPlaylistsRaw, userManager.getCurrentUser());
-        }
-        catch (BusinessException e){
-            frameController.showError(e.getMessage());
-        }
+        ui.setLoading(true);
+        loader.load(publisher -> playlistManager.getAllPlaylists());
     }
 
     /**
@@ -98,17 +109,4 @@ public class ListPlaylistsController extends MouseAdapter implements Observer {
             frameController.swapScreen(ui, Globals.PLAYLIST_SONGS);
         }
     }
-
-    @Override
-    public void update(String message, Song song) {}
-
-    /**
-     * Implementation of abstract method used to update a view before transitioning to it.
-     *
-     */
-    @Override
-    public void update() {
-        updatePlaylistsData();
-    }
-
 }
@@ -1,17 +1,19 @@
 package presentation.controllers.media;
 
 import business.*;
+import business.entities.Playlist;
 import business.entities.Song;
-import business.exceptions.BusinessException;
+import business.events.*;
 import presentation.Globals;
 import presentation.controllers.FrameController;
+import presentation.controllers.ScreenLoader;
 import presentation.views.components.JTableModel;
 import presentation.views.media.PlaylistSongsUI;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Controller class that controls the PlaylistSongsController.
@@ -19,7 +21,11 @@ import java.util.ArrayList;
  * @author Group 6
  * @version 1.0
  */
-public class PlaylistSongsController extends MouseAdapter implements ActionListener, Observer, Observable, MouseListener {
+public class PlaylistSongsController extends MouseAdapter implements ActionListener, MouseListener {
+    /**
+     * Milliseconds the table must stay still before the lyrics of its visible songs are prefetched.
+     */
+    private static final int LYRICS_DELAY = 300;
     /**
      * Object of the view to be controlled.
      */
@@ -49,10 +55,26 @@ public class PlaylistSongsController extends MouseAdapter implements ActionListe
      */
     private final PlaylistManager playlistManager;
     /**
-     * Arraylist of listeners to be notified when a relevant event happens in this
-     * controller's view.
+     * Object of the event bus, to follow the playback and the changes made in other views,
+     * and to tell other views about the changes made in this one.
+     */
+    private final EventBus events;
+    /**
+     * Object that loads the playlist displayed in the background.
+     */
+    private final ScreenLoader<Playlist, Void> loader;
+    /**
+     * Object of the playlist displayed, null until it has been loaded.
      */
-    private final ArrayList<Observer> listeners = new ArrayList<>();
+    private Playlist shownPlaylist;
+    /**
+     * Object of the songs displayed, in the order of the table.
+     */
+    private List<Song> shownSongs = List.of();
+    /**
+     * Object of the timer that prefetches the lyrics of the visible songs once scrolling stops.
+     */
+    private final Timer lyricsTimer;
     /**
      * Object of the first song selected whose position is to be swapped with another.
      */
@@ -73,75 +95,121 @@ public class PlaylistSongsController extends MouseAdapter implements ActionListe
      * @param songManager object of the song manager.
      * @param songDetailsController object of the songsDetailsUI controller.
      * @param userManager object of the user manager.
+     * @param events object of the event bus.
      */
     public PlaylistSongsController(Player player, SongDetailsController songDetailsController, SongManager songManager,
-                                   UserManager userManager, PlaylistManager playlistManager, FrameController frameController){
+                                   UserManager userManager, PlaylistManager playlistManager, FrameController frameController,
+                                   EventBus events){
         this.frameController = frameController;
         this.player = player;
         this.songManager = songManager;
         this.userManager = userManager;
         this.playlistManager = playlistManager;
         this.songDetailsController = songDetailsController;
-        this.songDetailsController.attach(this);
+        this.events = events;
         ui = new PlaylistSongsUI();
+        loader = new ScreenLoader<>(null, this::showPlaylist, message -> {
+            ui.setLoading(false);
+            frameController.showError(message);
+        });
         ui.setName(Globals.PLAYLIST_SONGS);
         ui.setListeners(this);
+        lyricsTimer = new Timer(LYRICS_DELAY, e -> prefetchVisibleLyrics());
+        lyricsTimer.setRepeats(false);
+        ui.setViewportListener(e -> lyricsTimer.restart());
         frameController.addCard(ui, Globals.PLAYLIST_SONGS);
-        player.attach(this);
+        events.subscribe(PlaybackEvent.class, SwingUtilities::invokeLater, true, this::playbackChanged);
+        events.subscribe(SongDeletedEvent.class, SwingUtilities::invokeLater, true, event -> refreshPlaylist());
+        events.subscribe(PlaylistChangedEvent.class, SwingUtilities::invokeLater, true, event -> refreshPlaylist());
     }
 
     /**
      * Method that is called to update view before entering it.
+     * The playlist is fetched once in the background, and every part of the view is filled from it
+     * when it arrives. A different playlist is shown empty until then.
      *
      * @param playlistId id of the playlist songs to display.
      */
     public void updatePlaylist (int playlistId) {
-        int songId = -1;
-        String playlistName = "";
-        try {
-            if (playlistManager.getPlaylistWithSongs(playlistId) != null){
-                playlistName = playlistManager.getPlaylistWithSongs(playlistId).getName();
-            }
+        if (playlistId != ui.getPlaylistId()) {
+            ui.updateTable(new String[0][2], new int[0], "", playlistId, -1, "", false);
         }
-        catch (BusinessException e){
-            playlistName = "";
+        ui.setLoading(true);
+        loader.load(publisher -> playlistManager.getPlaylistWithSongs(playlistId));
+    }
+
+    /**
+     * Method that fills the view with a playlist that has been loaded.
+     *
+     * @param playlist playlist to display, null if it does not exist anymore.
+     */
+    private void showPlaylist(Playlist playlist) {
+        ui.setLoading(false);
+        if (playlist == null) {
+            return;
         }
+        int playlistId = playlist.getId();
 
-        String[][] rawData = new String[0][];
-        try {
-            rawData = playlistManager.getSongsInPlaylist(playlistId);
-        } catch (BusinessException e) {
-            frameController.showError(e.getMessage());
+        List<Song> songs = playlist.getSongs();
+        String[][] data = new String[songs.size()][2];
+        int[] dataIds = new int[songs.size()];
+        for (int i = 0; i < songs.size(); i++){
+            data[i][0] = songs.get(i).getTitle();
+            data[i][1] = songs.get(i).getOwner();
+            dataIds[i] = songs.get(i).getId();
         }
-        String[][] data = new String[rawData.length][2];
-        int[] dataIds = new int[rawData.length];
 
-        for (int i = 0; i < rawData.length; i++){
-            for (int j = 0; j < rawData.length; j++) {
-                if (i == j) {
-                    data[i][0] = rawData[i][0];
-                    data[i][1] = rawData[i][1];
-                    dataIds[i] = Integer.parseInt(rawData[i][2]);
-                    break;
-                }
-            }
+        int songId = -1;
+        if (player.getCurrentSong() != null){
+            songId = player.getCurrentSong().getId();
         }
-        try {
-            if (player.getCurrentSong() != null){
-                songId = player.getCurrentSong().getId();
-            }
-            if (playlistManager.getPlaylistWithSongs(playlistId) != null) {
-                boolean isOwner = playlistManager.getPlaylistWithSongs(playlistId).getOwner().equals(userManager.getCurrentUser());
+        boolean isOwner = playlist.getOwner().equals(userManager.getCurrentUser());
 
-                ui.updateTable(data, dataIds, playlistName, playlistId, songId,
-                        playlistManager.getPlaylistWithSongs(playlistId).getDescription(), isOwner);
-            }
+        ui.updateTable(data, dataIds, playlist.getName(), playlistId, songId, playlist.getDescription(), isOwner);
+        shownPlaylist = playlist;
+        shownSongs = songs;
+        lyricsTimer.restart();
+    }
+
+    /**
+     * Method that asks for the lyrics of the songs visible in the table to be fetched in the background.
+     */
+    private void prefetchVisibleLyrics() {
+        int[] rows = ui.getVisibleRows();
+        if (rows.length == 0 || !ui.isShowing()) {
+            return;
         }
-        catch (BusinessException e){
-            frameController.showError(e.getMessage());
+        int last = Math.min(rows[1], shownSongs.size() - 1);
+        if (rows[0] <= last) {
+            songManager.getLyricsPrefetcher().prefetch(shownSongs.subList(rows[0], last + 1));
         }
     }
 
+    /**
+     * Method that returns whether the current user owns the playlist displayed, as it was loaded.
+     *
+     * @return true if the playlist displayed has been loaded and belongs to the current user.
+     */
+    private boolean isShownOwner() {
+        return shownPlaylist != null && shownPlaylist.getId() == ui.getPlaylistId()
+                && shownPlaylist.getOwner().equals(userManager.getCurrentUser());
+    }
+
+    /**
+     * Method that returns a song of the playlist displayed, as it was loaded.
+     *
+     * @param songId id of the song.
+     * @return the song, null if it is not displayed.
+     */
+    private Song getShownSong(int songId) {
+        for (Song song : shownSongs) {
+            if (song.getId() == songId) {
+                return song;
+            }
+        }
+        return null;
+    }
+
     /**
      * Method that is triggered whenever the table the view is clicked. Allows each
      * song in the playlist to be played from the table, for each song's description to be viewed
@@ -156,14 +224,10 @@ public class PlaylistSongsController extends MouseAdapter implements ActionListe
         if (frameController.getCurrentScreen().equals(Globals.AVAILABLE_SONGS) && !e.getSource().equals(ui.getTable())){
             int row = sourceTable.rowAtPoint(e.getPoint());
             int songId = Integer.parseInt((String)sourceTable.getValueAt(row, 0));
-            try {
-                playlistManager.addSongToPlaylist(songId, ui.getPlaylistId());
-            }
-            catch (BusinessException ex){
-                frameController.showError(ex.getMessage());
-            }
+            int playlistId = ui.getPlaylistId();
             frameController.forgetCurrentScreen();
-            update();
+            ScreenLoader.run(publisher -> playlistManager.addSongToPlaylist(songId, playlistId),
+                    added -> refreshPlaylist(), this::showChangeError);
             return;
         }
 
@@ -180,97 +244,95 @@ public class PlaylistSongsController extends MouseAdapter implements ActionListe
 
         if (ui.getReorderingStatus() == 0) {
             if (col == 0 && row >= 0) {
-                try {
-                    if (player.getCurrentSong() == null || songId != player.getCurrentSong().getId()) {
-                        player.queue(songManager.getSong(songId), playlistManager.getPlaylistWithSongs(ui.getPlaylistId()));
+                if (player.getCurrentSong() == null || songId != player.getCurrentSong().getId()) {
+                    Song song = getShownSong(songId);
+                    if (song != null) {
+                        player.queue(song, shownPlaylist);
                     }
-                    if (player.getCurrentSong() != null) {
-                        player.togglePause();
-                    }
-                } catch (BusinessException ex) {
-                    frameController.showError(ex.getMessage());
+                }
+                else {
+                    player.togglePause();
                 }
             } else if ((col == 1 || col == 2) && row >= 0) {
                 songDetailsController.setSong(songId);
                 frameController.swapScreen(ui, Globals.SONG_DETAILS);
             } else if (col == 3 && row >= 0) {
-                try {
-                    if (userManager.getCurrentUser().equals(playlistManager.getPlaylistWithSongs(ui.getPlaylistId()).getOwner())) {
-                        playlistManager.deleteSongInPlaylist(songId, ui.getPlaylistId());
-                        updatePlaylist(ui.getPlaylistId());
-                    }
-                } catch (BusinessException ex) {
-                    frameController.showError(ex.getMessage());
+                if (isShownOwner()) {
+                    int playlistId = ui.getPlaylistId();
+                    ScreenLoader.run(publisher -> {
+                        playlistManager.deleteSongInPlaylist(songId, playlistId);
+                        return null;
+                    }, result -> refreshPlaylist(), this::showChangeError);
                 }
             }
         }
         else if (ui.getReorderingStatus() == 1 && row >= 0){
-            try {
-                if (userManager.getCurrentUser().equals(playlistManager.getPlaylistWithSongs(ui.getPlaylistId()).getOwner())) {
-                    songToMove1 = ui.getUserRowId(row);
-                    ui.toggleReorder("");
-                }
-            } catch (BusinessException ex) {
-                frameController.showError(ex.getMessage());
+            if (isShownOwner()) {
+                songToMove1 = ui.getUserRowId(row);
+                ui.toggleReorder("");
             }
         }
         else if (ui.getReorderingStatus() == 2 && row >= 0) {
-            try {
-                if (userManager.getCurrentUser().equals(playlistManager.getPlaylistWithSongs(ui.getPlaylistId()).getOwner())) {
-                    songToMove2 = ui.getUserRowId(row);
+            songToMove2 = ui.getUserRowId(row);
+            ui.toggleReorder("");
+            int playlistId = ui.getPlaylistId();
+            int firstSong = songToMove1;
+            int secondSong = songToMove2;
+            ScreenLoader.run(publisher -> {
+                playlistManager.swapPositions(playlistId, firstSong, secondSong);
+                return playlistManager.getPlaylistWithSongs(playlistId);
+            }, playlist -> {
+                if (playlist != null && player.getCurrentPlaylist() != null && player.getCurrentPlaylist().getId() == playlistId) {
+                    player.queue(playlist);
                 }
-                songToMove2 = ui.getUserRowId(row);
-                playlistManager.swapPositions(ui.getPlaylistId(), songToMove1, songToMove2);
-                update();
-                ui.toggleReorder("");
-                if (player.getCurrentPlaylist() != null && player.getCurrentPlaylist().getId() == ui.getPlaylistId()) {
-                    player.queue(playlistManager.getPlaylistWithSongs(ui.getPlaylistId()));
-                }
-            } catch (BusinessException ex) {
-                frameController.showError(ex.getMessage());
-            }
+                refreshPlaylist();
+            }, this::showChangeError);
         }
     }
 
+    /**
+     * Method that shows why a change made from the view failed, and reloads the playlist to show its actual state.
+     *
+     * @param message error message.
+     */
+    private void showChangeError(String message) {
+        frameController.showError(message);
+        refreshPlaylist();
+    }
+
     /**
      * Method that is triggered whenever a change occurs in the player so that the songs
      * play buttons are synchronised with the player.
      *
-     * @param message message stating what type of event happened to the player
-     * @param song song that the player is currently playing.
+     * @param event event stating what happened to the player.
      */
-    @Override
-    public void update(String message, Song song) {
-        SwingUtilities.invokeLater(()->{
-            JTable table = ui.getTable();
-            if (song == null) {
-                if (message.equals(Player.STOP)){
-                    for (int i = 0; i < table.getRowCount(); i++) {
-                        ui.setPlayButton(i);
-                    }
+    private void playbackChanged(PlaybackEvent event) {
+        JTable table = ui.getTable();
+        Song song = event.getSong();
+        if (song == null) {
+            if (event instanceof PlaybackStoppedEvent){
+                for (int i = 0; i < table.getRowCount(); i++) {
+                    ui.setPlayButton(i);
                 }
-                return;
             }
+            return;
+        }
 
-            for (int i = 0; i < table.getRowCount(); i++) {
-                ui.setPlayButton(i);
+        boolean playing = event instanceof SongStartedEvent || event instanceof SongResumedEvent;
+        for (int i = 0; i < table.getRowCount(); i++) {
+            ui.setPlayButton(i);
 
-                if (table.getValueAt(i, 1).equals(song.getTitle())) {
-                    if (message.equals(Player.SONG_START) || message.equals(Player.SONG_RESUME) ){
-                        ui.setPauseButton(i);
-                    }
-                }
+            if (playing && table.getValueAt(i, 1).equals(song.getTitle())) {
+                ui.setPauseButton(i);
             }
-        });
+        }
     }
 
     /**
-     * Method that is triggered when an event in a different view happens which affects
-     * this controller's view.
+     * Method that reloads the playlist being displayed, when a change in another view may affect it.
      *
      */
-    @Override
-    public void update() {
+    private void refreshPlaylist() {
         updatePlaylist(ui.getPlaylistId());
     }
 
@@ -287,55 +349,23 @@ public class PlaylistSongsController extends MouseAdapter implements ActionListe
             ui.toggleReorder("press");
             return;
         }
-        try {
-            if (userManager.getCurrentUser().equals(playlistManager.getPlaylistWithSongs(ui.getPlaylistId()).getOwner())) {
-                if (e.getActionCommand().equals("addButton")) {
-                    notifyObservers("adding song");
-                    frameController.swapScreen(ui, Globals.AVAILABLE_SONGS);
-                } else if (e.getActionCommand().equals("deleteButton")) {
-                    try {
-                        playlistManager.deletePlaylist(ui.getPlaylistId());
-                        notifyObservers("deleted playlist");
+        if (isShownOwner()) {
+            int playlistId = ui.getPlaylistId();
+            if (e.getActionCommand().equals("addButton")) {
+                events.publish(new SongPickRequestedEvent(playlistId));
+                frameController.swapScreen(ui, Globals.AVAILABLE_SONGS);
+            } else if (e.getActionCommand().equals("deleteButton")) {
+                ScreenLoader.run(publisher -> {
+                    playlistManager.deletePlaylist(playlistId);
+                    return null;
+                }, result -> {
+                    events.publish(new PlaylistDeletedEvent(playlistId));
+                    // the user may have left the playlist while it was being deleted
+                    if (frameController.getCurrentScreen().equals(Globals.PLAYLIST_SONGS) && ui.getPlaylistId() == playlistId) {
                         frameController.forgetCurrentScreen();
-                    } catch (BusinessException ex) {
-                        frameController.showError(ex.getMessage());
                     }
-                }
+                }, frameController::showError);
             }
-        } catch (BusinessException ex) {
-            frameController.showError(ex.getMessage());
-        }
-    }
-
-    /**
-     * Method that makes an object a listener to this object.
-     *
-     * @param o object that listens to this controller.
-     */
-    @Override
-    public void attach(Observer o) {
-        listeners.add(o);
-    }
-
-    /**
-     * Method that removes a listener from this object.
-     *
-     * @param o object that listens to this controller.
-     */
-    @Override
-    public void detach(Observer o) {
-        listeners.remove(o);
-    }
-
-    /**
-     * Method that notifies all listeners attached what event has happened.
-     *
-     * @param message that describes the event that has happened.
-     */
-    @Override
-    public void notifyObservers(String message) {
-        for (Observer listener : listeners) {
-            listener.update();
         }
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,9 @@
 package presentation.controllers.media;
 
 import business.*;
+import business.entities.Playlist;
 import business.entities.Song;
+import business.events.*;
 import business.exceptions.BusinessException;
 import presentation.Globals;
 import presentation.controllers.FrameController;
@@ -10,8 +12,8 @@ import presentation.views.media.SongDetailUI;
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 
 /**
  * Controller class for the SongDetailsUI.
@@ -19,15 +21,15 @@ import java.util.Enumeration;
  * @author Group 6
  * @version 1.0
  */
-public class SongDetailsController implements ActionListener, Observer, Observable {
+public class SongDetailsController implements ActionListener {
     /**
      * SongManager instance to retrieve the song information.
      */
     private final SongManager songManager;
     /**
-     * SongDetailUI instance to display the the information about a song.
+     * SongDetailUI instance to display the the information about a song, null until a song is first displayed.
      */
-    private final SongDetailUI ui;
+    private SongDetailUI ui;
     /**
      * FrameController instance to communicate with the main frame.
      */
@@ -49,9 +51,9 @@ public class SongDetailsController implements ActionListener, Observer, Observab
      */
     private Song selectedSong;
     /**
-     * ArrayList of Observers to know and notify when a song is paused/played/started.
+     * EventBus instance to follow the playback and to tell other views that a song or a playlist changed.
      */
-    private final ArrayList<Observer> listeners = new ArrayList<>();
+    private final EventBus events;
 
     /**
      * Constructor method for SongDetailsController.
@@ -61,19 +63,32 @@ public class SongDetailsController implements ActionListener, Observer, Observab
      * @param player Player instance to play/pause the song.
      * @param playlistManager PlaylistManager instance to add songs to a playlists.
      * @param userManager UserManager instance to retrieve the user information.
+     * @param events EventBus instance to follow the playback and to tell other views that a song or a playlist changed.
      */
     public SongDetailsController(FrameController frameController, SongManager songManager, Player player,
-                                 PlaylistManager playlistManager, UserManager userManager) {
+                                 PlaylistManager playlistManager, UserManager userManager, EventBus events) {
         this.frameController = frameController;
         this.songManager = songManager;
-        this.ui = new SongDetailUI();
         this.player = player;
         this.playlistManager = playlistManager;
         this.userManager = userManager;
-        frameController.addCard(ui, Globals.SONG_DETAILS);
-        ui.setName(Globals.SONG_DETAILS);
-        ui.setListeners(this);
-        player.attach(this);
+        this.events = events;
+        events.subscribe(PlaybackEvent.class, SwingUtilities::invokeLater, true, this::playbackChanged);
+    }
+
+    /**
+     * Method that returns the view, building it the first time.
+     *
+     * @return SongDetailUI instance to display the information about a song.
+     */
+    private SongDetailUI getUi() {
+        if (ui == null) {
+            ui = new SongDetailUI();
+            frameController.addCard(ui, Globals.SONG_DETAILS);
+            ui.setName(Globals.SONG_DETAILS);
+            ui.setListeners(this);
+        }
+        return ui;
     }
 
     /**
@@ -86,13 +101,17 @@ public class SongDetailsController implements ActionListener, Observer, Observab
             this.selectedSong = songManager.getSong(id);
         } catch (BusinessException e) {
             frameController.showError(e.getMessage());
+            return;
         }
-        String lyrics = songManager.getLyrics(selectedSong);
-        if (lyrics == null) {
-            lyrics = "Sorry. There are no lyrics available for this song";
-        }
-        ui.setSongInfo(selectedSong.getTitle(), selectedSong.getArtist(), selectedSong.getAlbum(),
-                selectedSong.getGenre(), player.getTimeString(selectedSong.getDuration()), selectedSong.getOwner(), lyrics);
+        Song song = selectedSong;
+        getUi().setSongInfo(song.getTitle(), song.getArtist(), song.getAlbum(),
+                song.getGenre(), player.getTimeString(song.getDuration()), song.getOwner(), "Loading lyrics...");
+        songManager.getLyricsAsync(song).thenAccept(lyrics -> SwingUtilities.invokeLater(() -> {
+            // the user may have opened another song while the lyrics were being fetched
+            if (selectedSong == song) {
+                ui.setLyrics(lyrics == null ? "Sorry. There are no lyrics available for this song" : lyrics);
+            }
+        }));
         if (userManager.getCurrentUser().equals(selectedSong.getOwner())) {
             ui.showDeleteButton();
         } else {
@@ -128,19 +147,21 @@ public class SongDetailsController implements ActionListener, Observer, Observab
             case Globals.JB_DELETE-> {
                 try {
                     songManager.deleteSong(selectedSong);
+                    playlistManager.clearCache();
                     frameController.forgetCurrentScreen();
                     if (player.getCurrentSong() != null && player.getCurrentSong().getId() == selectedSong.getId()) {
                         player.stop();
                     }
-                    notifyObservers("deleted song");
+                    events.publish(new SongDeletedEvent(selectedSong.getId()));
                 } catch (BusinessException ex) {
                     frameController.showError(ex.getMessage());
                 }
             }
             case Globals.JB_ADD_TO_PLAYLIST-> {
                 try {
-                    ui.setPopup(playlistManager.getUserPlaylistsName(), frameController.getFrame());
-                    ui.setPopListeners(this, playlistManager.getUserPlaylistsId());
+                    List<Playlist> playlists = playlistManager.getUserPlaylists();
+                    ui.setPopup(playlists.stream().map(Playlist::getName).toArray(String[]::new), frameController.getFrame());
+                    ui.setPopListeners(this, playlists.stream().mapToInt(Playlist::getId).toArray());
                 } catch (BusinessException ex) {
                     frameController.showError(ex.getMessage());
                 }
@@ -161,13 +182,13 @@ public class SongDetailsController implements ActionListener, Observer, Observab
                     AbstractButton button = buttons.nextElement();
                     if (button.isSelected()) {
                         try {
-                            boolean isAdded = playlistManager.addSongToPlaylist(selectedSong.getId(),
-                                    Integer.parseInt(button.getActionCommand()));
+                            int playlistId = Integer.parseInt(button.getActionCommand());
+                            boolean isAdded = playlistManager.addSongToPlaylist(selectedSong.getId(), playlistId);
                             if (!isAdded) {
                                 frameController.showError("Song already in playlist");
                             }
                             else{
-                                notifyObservers("added song");
+                                events.publish(new PlaylistChangedEvent(playlistId));
                             }
                         } catch (BusinessException ex) {
                             frameController.showError(ex.getMessage());
@@ -180,65 +201,21 @@ public class SongDetailsController implements ActionListener, Observer, Observab
     }
 
     /**
-     * Observer update method to update the songDetails view.
-     *
-     * @param message Message received.
-     * @param song Song currently playing.
-     */
-    @Override
-    public void update(String message, Song song) {
-        SwingUtilities.invokeLater(() -> {
-            switch (message) {
-                case Player.SONG_START, Player.SONG_RESUME -> {
-                    if (selectedSong != null) {
-                        if (song != null && song.getId() == selectedSong.getId()) {
-                            ui.setPauseButton();
-                        } else {
-                            ui.setPlayButton();
-                        }
-                    }
-                }
-                case Player.SONG_PAUSE, Player.STOP -> {
-                    if (selectedSong != null) {
-                        ui.setPlayButton();
-                    }
-                }
-            }
-        });
-    }
-
-    @Override
-    public void update() {}
-
-    /**
-     * Method to attach an observer.
-     *
-     * @param o Observer to be attached.
-     */
-    @Override
-    public void attach(Observer o) {
-        listeners.add(o);
-    }
-
-    /**
-     * Method to detach an observer.
+     * Method that updates the play button when the state of the playback changes, on the event dispatch thread.
      *
-     * @param o Observer to be detached.
+     * @param event event received.
      */
-    @Override
-    public void detach(Observer o) {
-        listeners.remove(o);
-    }
-
-    /**
-     * Method to notify other classes about an action made.
-     *
-     * @param message Message to be sent to the observers.
-     */
-    @Override
-    public void notifyObservers(String message) {
-        for (Observer listener : listeners) {
-            listener.update();
+    private void playbackChanged(PlaybackEvent event) {
+        if (selectedSong == null) {
+            return;
+        }
+        Song song = event.getSong();
+        if ((event instanceof SongStartedEvent || event instanceof SongResumedEvent)
+                && song != null && song.getId() == selectedSong.getId()) {
+            ui.setPauseButton();
+        }
+        else if (!(event instanceof QueueOriginChangedEvent || event instanceof PlaybackFailedEvent)) {
+            ui.setPlayButton();
         }
     }
 }
@@ -2,8 +2,9 @@ package presentation.controllers.media.player;
 
 import business.Player;
 import business.entities.Song;
+import business.events.*;
+import business.playback.PositionListener;
 import presentation.Globals;
-import business.Observer;
 import presentation.controllers.FrameController;
 import presentation.views.media.player.PlayerUI;
 
@@ -21,7 +22,7 @@ import java.awt.event.MouseListener;
  * @author Group 6
  * @version 1.0
  */
-public class PlayerController extends Thread implements ActionListener, ChangeListener, MouseListener, Observer {
+public class PlayerController implements ActionListener, ChangeListener, MouseListener, PositionListener {
 
     /**
      * FrameController instance to communicate with the main frame.
@@ -40,26 +41,27 @@ public class PlayerController extends Thread implements ActionListener, ChangeLi
      */
     private int secondsElapsed;
     /**
-     * Boolean values representing the different states of the player.
+     * Whether the slider follows the position of the song, false while the user drags it.
      */
     private boolean autoUpdateElapsed;
-    private boolean isPlaying;
 
     /**
      * Constructor method for PlayerController.
      *
      * @param frameController FrameController instance to communicate with the main frame.
      * @param player Player instance to play songs.
+     * @param events EventBus instance to follow the changes of the playback.
      */
-    public PlayerController(FrameController frameController, Player player) {
+    public PlayerController(FrameController frameController, Player player, EventBus events) {
         this.ui = new PlayerUI();
         this.frameController = frameController;
         this.player = player;
 
         ui.registerListener(this);
         frameController.setPlayer(ui);
-        player.attach(this);
-        start();
+        events.subscribe(PlaybackEvent.class, SwingUtilities::invokeLater, this::playbackChanged);
+        player.addPositionListener(this);
+        autoUpdateElapsed = true;
     }
 
     /**
@@ -76,95 +78,54 @@ public class PlayerController extends Thread implements ActionListener, ChangeLi
             ui.disablePlaylistLoop();
         }
 
-        synchronized (ui) {
-            secondsElapsed = 0;
-            ui.notifyAll();
-        }
+        secondsElapsed = 0;
+        ui.setSliderValue(0);
+        ui.setTimeElapsed(player.getTimeString(0));
     }
 
     /**
-     * Thread run method that updates the elapsed time and the player slider.
+     * PositionListener method that moves the slider to the position of the song, unless the user is dragging it.
+     *
+     * @param microseconds position of the song.
      */
-    @SuppressWarnings("InfiniteLoopStatement")
     @Override
-    public void run() {
-
-        while (true) {
-
-            synchronized (ui) {
-                try {
-                    ui.wait();
-                } catch (InterruptedException e) {
-                    // Shouldn't be interrupted here, skip to next iteration to wait again
-                    continue;
-                }
-            }
-
-            isPlaying = true;
-            autoUpdateElapsed = true;
-
-            secondsElapsed = (int) Math.round(player.getPosition());
-            SwingUtilities.invokeLater(() -> {
+    public void positionChanged(long microseconds) {
+        int seconds = (int) (microseconds / 1000000L);
+        SwingUtilities.invokeLater(() -> {
+            if (autoUpdateElapsed && seconds != secondsElapsed) {
+                secondsElapsed = seconds;
                 ui.setSliderValue(secondsElapsed);
                 ui.setTimeElapsed(player.getTimeString(secondsElapsed));
-            });
-
-            while (isPlaying) {
-
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    continue;
-                }
-
-                if (isPlaying && autoUpdateElapsed) {
-                    SwingUtilities.invokeLater(() -> {
-                        ui.setSliderValue(++secondsElapsed);
-                        ui.setTimeElapsed(player.getTimeString(secondsElapsed));
-                    });
-                }
             }
-        }
+        });
     }
 
     /**
-     * Observer update method to update the player.
+     * Method that updates the player when the state of the playback changes, on the event dispatch thread.
      *
-     * @param message Message received.
-     * @param song Song currently playing.
+     * @param event event received.
      */
-    @Override
-    public void update(String message, Song song) {
-        SwingUtilities.invokeLater(() -> {
-            switch (message) {
-                case Player.SONG_START -> loadSong(song);
-                case Player.ORIGIN_CHANGE -> {
-                    ui.resetSongLoop();
-                    ui.resetPlaylistLoop();
-                }
-                case Player.SONG_PAUSE -> {
-                    isPlaying = false;
-                    this.interrupt();
-
-                    ui.pause();
-                }
-                case Player.SONG_RESUME -> {
-                    synchronized (ui) {
-                        ui.notifyAll();
-                        ui.play();
-                    }
-                }
-                case Player.STOP -> {
-                    isPlaying = false;
-                    ui.removeSong();
-                }
-                default -> {
-                    isPlaying = false;
-                    ui.removeSong();
-                    frameController.showError(message);
-                }
-            }
-        });
+    private void playbackChanged(PlaybackEvent event) {
+        if (event instanceof SongStartedEvent) {
+            loadSong(event.getSong());
+        }
+        else if (event instanceof QueueOriginChangedEvent) {
+            ui.resetSongLoop();
+            ui.resetPlaylistLoop();
+        }
+        else if (event instanceof SongPausedEvent) {
+            ui.pause();
+        }
+        else if (event instanceof SongResumedEvent) {
+            ui.play();
+        }
+        else if (event instanceof PlaybackStoppedEvent) {
+            ui.removeSong();
+        }
+        else if (event instanceof PlaybackFailedEvent failed) {
+            ui.removeSong();
+            frameController.showError(failed.getMessage());
+        }
     }
 
     /**
@@ -184,21 +145,11 @@ public class PlayerController extends Thread implements ActionListener, ChangeLi
                 player.togglePlaylistLoop();
             }
             case Globals.JB_PREVIOUS_SONG -> {
-                // exit sleep loop to wait for song start
-                isPlaying = false;
-                this.interrupt();
-
                 ui.resetSongLoop();
                 player.previousSong();
             }
             case Globals.JB_PLAY_PAUSE -> player.togglePause();
-            case Globals.JB_NEXT_SONG -> {
-                // exit sleep loop to wait for song start
-                isPlaying = false;
-                this.interrupt();
-
-                player.nextSong();
-            }
+            case Globals.JB_NEXT_SONG -> player.nextSong();
             case Globals.JB_STOP -> player.stop();
         }
     }
@@ -225,7 +176,6 @@ public class PlayerController extends Thread implements ActionListener, ChangeLi
     public void mouseReleased(MouseEvent e) {
         if(e.getSource() == ui.getSlider()) {
             player.setPosition(secondsElapsed);
-            this.interrupt(); // exit thread count sleep, if sleeping, to start counting again
             autoUpdateElapsed = true;
         }
     }
@@ -265,7 +215,4 @@ public class PlayerController extends Thread implements ActionListener, ChangeLi
 
     @Override
     public void mouseExited(MouseEvent e) {}
-
-    @Override
-    public void update() {}
 }
\ No newline at end of file
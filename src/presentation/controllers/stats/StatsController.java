@@ -1,10 +1,14 @@
 package presentation.controllers.stats;
 
 import business.SongManager;
+import business.entities.Statistic;
 import presentation.Globals;
 import presentation.controllers.FrameController;
+import presentation.controllers.ScreenLoader;
 import presentation.views.stats.StatsUI;
 
+import java.util.ArrayList;
+
 /**
  * Controller class for the StatsUI.
  *
@@ -14,13 +18,21 @@ import presentation.views.stats.StatsUI;
 public class StatsController {
 
     /**
-     * StatsUI instance to display the stats.
+     * StatsUI instance to display the stats, null until the screen is first displayed.
+     */
+    private StatsUI ui;
+    /**
+     * FrameController instance to communicate with the main frame.
      */
-    private final StatsUI ui;
+    private final FrameController frameController;
     /**
      * SongManager instance to retrieve the stats.
      */
     private final SongManager songManager;
+    /**
+     * ScreenLoader instance to compute the stats in the background.
+     */
+    private final ScreenLoader<ArrayList<Statistic>, Void> loader;
 
     /**
      * Constructor method for StatsController.
@@ -29,17 +41,38 @@ public class StatsController {
      * @param songManager SongManager instance to retrieve the stats.
      */
     public StatsController(FrameController frameController, SongManager songManager) {
-        ui = new StatsUI();
+        this.frameController = frameController;
         this.songManager = songManager;
-        frameController.addCard(ui, Globals.STATS);
-        ui.setName(Globals.STATS);
+        this.loader = new ScreenLoader<>(null, stats -> {
+            ui.setLoading(false);
+            ui.setStats(stats);
+        }, message -> {
+            ui.setLoading(false);
+            frameController.showError(message);
+        });
+        frameController.addLazyCard(Globals.STATS, this::getUi);
+    }
+
+    /**
+     * Method that returns the view, building it the first time.
+     *
+     * @return StatsUI instance to display the stats.
+     */
+    private StatsUI getUi() {
+        if (ui == null) {
+            ui = new StatsUI();
+            frameController.addCard(ui, Globals.STATS);
+            ui.setName(Globals.STATS);
+        }
+        return ui;
     }
 
     /**
-     * Updates the stats in the StatsUI to the newest stats.
+     * Updates the stats in the StatsUI to the newest stats, computed in the background.
      */
     public void setStats() {
-        ui.setStats(songManager.getStats());
+        getUi().setLoading(true);
+        loader.load(publisher -> songManager.getStats());
     }
 
 }
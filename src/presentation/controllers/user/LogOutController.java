@@ -4,6 +4,7 @@ import business.Player;
 import business.PlaylistManager;
 import business.SongManager;
 import business.UserManager;
+import business.entities.DeletionReport;
 import business.exceptions.BusinessException;
 import presentation.Globals;
 import presentation.controllers.FrameController;
@@ -24,13 +25,13 @@ public class LogOutController extends MouseAdapter implements ActionListener {
      */
     private final UserManager userManager;
     /**
-     * SongManager instance to delete the songs created by the user to be deleted.
+     * PlaylistManager instance to forget the cached playlists of the user to be deleted.
      */
-    private final SongManager songManager;
+    private final PlaylistManager playlistManager;
     /**
-     * PlaylistManager instance to delete the playlists created by the user to be deleted.
+     * SongManager instance to forget the cached audio and lyrics of the songs of the user to be deleted.
      */
-    private final PlaylistManager playlistManager;
+    private final SongManager songManager;
     /**
      * Player instance to stop playing songs.
      */
@@ -49,16 +50,16 @@ public class LogOutController extends MouseAdapter implements ActionListener {
      *
      * @param frameController FrameController instance to communicate with the main frame.
      * @param userManager UserManager instance to retrieve and set the current user.
-     * @param songManager SongManager instance to delete the songs created by the user to be deleted.
-     * @param playlistManager PlaylistManager instance to delete the playlists created by the user to be deleted.
+     * @param playlistManager PlaylistManager instance to forget the cached playlists of the user to be deleted.
+     * @param songManager SongManager instance to forget the cached audio and lyrics of the songs of the user to be deleted.
      * @param player Player instance to stop playing songs.
      */
-    public LogOutController(FrameController frameController, UserManager userManager, SongManager songManager,
-                            PlaylistManager playlistManager, Player player) {
+    public LogOutController(FrameController frameController, UserManager userManager,
+                            PlaylistManager playlistManager, SongManager songManager, Player player) {
         this.frameController = frameController;
         this.userManager = userManager;
-        this.songManager = songManager;
         this.playlistManager = playlistManager;
+        this.songManager = songManager;
         this.player = player;
         ui = new LogOutUI();
         ui.setListeners(this);
@@ -67,19 +68,23 @@ public class LogOutController extends MouseAdapter implements ActionListener {
     }
 
     /**
-     * Method to delete the current user.
+     * Method to delete the current user along with their songs and playlists.
      *
+     * @return DeletionReport with what has been deleted.
      * @throws BusinessException if there was an error deleting the user.
      */
-    public boolean deleteUser() throws BusinessException {
-        String user = userManager.getCurrentUser();
-        songManager.deleteUserSongs(user);
-        playlistManager.deleteUserPlaylists(user);
-        if (userManager.deleteUser(user)) {
+    public DeletionReport deleteUser() throws BusinessException {
+        DeletionReport report;
+        try {
+            report = userManager.deleteUser(userManager.getCurrentUser());
+        } finally {
+            playlistManager.clearCache();
+        }
+        songManager.forgetSongs(report.getSongIds());
+        if (report.isDeleted()) {
             logOut();
-            return true;
         }
-        return false;
+        return report;
     }
 
     /**
@@ -102,8 +107,10 @@ public class LogOutController extends MouseAdapter implements ActionListener {
         switch (e.getActionCommand()){
             case Globals.JB_DELETE_ACCOUNT -> {
                 try {
-                    if(deleteUser()){
-                        frameController.showMessage("Account successfully deleted");
+                    DeletionReport report = deleteUser();
+                    if(report.isDeleted()){
+                        frameController.showMessage("Account successfully deleted (%d rows and %.1f MB freed)"
+                                .formatted(report.getRows(), report.getBytesFreed() / (1024.0 * 1024.0)));
                         frameController.swapScreen(ui, Globals.MENU);
                     }
                     else{
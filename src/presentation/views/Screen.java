@@ -1,8 +1,18 @@
 package presentation.views;
 
 import javax.swing.*;
+import java.awt.*;
 
 public abstract class Screen extends JPanel {
     public abstract void clearFields();
     public abstract String getTag();
+
+    /**
+     * Method that shows whether the data of the screen is still being loaded.
+     *
+     * @param loading true while the data is loading.
+     */
+    public void setLoading(boolean loading) {
+        setCursor(loading ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+    }
 }
@@ -6,6 +6,7 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.util.List;
 
 /**
  * Component class that allows us to override some of the functionalities we need modified from
@@ -112,6 +113,33 @@ public class JTableModel extends DefaultTableModel {
         }
     }
 
+    /**
+     * Removes every row of the table, keeping its columns.
+     */
+    public void clearTable(){
+        setDataVector(new Object[0][], columnNames);
+        renderer.setHorizontalAlignment(SwingConstants.CENTER);
+        for (int i = 0; i < columnNames.length; i++){
+            table.getColumnModel().getColumn(i).setCellRenderer(renderer);
+        }
+    }
+
+    /**
+     * Appends rows at the end of the table, notifying the table once for all of them.
+     *
+     * @param rows rows to append.
+     */
+    public void addRows(List<? extends Object[]> rows){
+        if (rows.isEmpty()) {
+            return;
+        }
+        int first = getRowCount();
+        for (Object[] row : rows) {
+            dataVector.add(convertToVector(row));
+        }
+        fireTableRowsInserted(first, getRowCount() - 1);
+    }
+
     /**
      * Returns the id of the row passed.
      *
@@ -7,7 +7,10 @@ import presentation.views.Screen;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * AddSongUI class that represents the view to add a song.
@@ -34,13 +37,26 @@ public class AddSongUI extends Screen {
      */
     private String genre = "";
     /**
-     * String representing the path of the song file to be added.
+     * Maximum length of a song title.
+     */
+    private static final int MAX_TITLE_LENGTH = 50;
+    /**
+     * String representing the path of the song file to be added, the first one if several were selected.
      */
     private String file = "";
+    /**
+     * List of the paths of the song files to be added.
+     */
+    private final List<String> files = new ArrayList<>();
     /**
      * JComboBox representing the different genres to be chosen.
      */
     private final JComboBox<String> genreComboBox = new JComboBox<>();
+    /**
+     * JCheckBox representing whether the MP3 files are stored compressed and decoded when played,
+     * instead of being expanded to WAV when added.
+     */
+    private final JCheckBox keepCompressed = new JCheckBox("Keep MP3 files compressed");
     /**
      * JPanel representing the center panel of the view.
      */
@@ -112,6 +128,16 @@ public class AddSongUI extends Screen {
         configJLabel("File");
 
         selectFile = configJButton("SELECT FILE", Color.gray);
+
+        keepCompressed.setFont(new Font("Calibri", Font.PLAIN, 15));
+        keepCompressed.setForeground(Color.white);
+        keepCompressed.setBackground(Color.black);
+        keepCompressed.setFocusPainted(false);
+        keepCompressed.setToolTipText("Takes less disk space, but the songs are decoded every time they are played");
+        keepCompressed.setAlignmentX(Component.LEFT_ALIGNMENT);
+        centerPanel.add(keepCompressed);
+        centerPanel.add(Box.createRigidArea(bigSpace));
+
         addSong = configJButton("ADD SONG", Globals.greenSpotify);
         this.add(centerPanel);
 
@@ -199,8 +225,19 @@ public class AddSongUI extends Screen {
      * @param path String indicating the path of the song file.
      */
     public void setFile(String path){
-        file = path;
-        selectFile.setText("FILE SELECTED");
+        setFiles(List.of(path));
+    }
+
+    /**
+     * Method that sets the paths of the songs to be added.
+     *
+     * @param paths List of Strings indicating the paths of the song files.
+     */
+    public void setFiles(List<String> paths){
+        files.clear();
+        files.addAll(paths);
+        file = paths.isEmpty() ? "" : paths.get(0);
+        selectFile.setText(paths.size() > 1 ? paths.size() + " FILES SELECTED" : "FILE SELECTED");
         selectFile.setBackground(Globals.greenSpotify);
     }
 
@@ -210,10 +247,31 @@ public class AddSongUI extends Screen {
      */
     public void clearPath(){
         file = "";
+        files.clear();
         selectFile.setText("SELECT FILE");
         selectFile.setBackground(Color.gray);
     }
 
+    /**
+     * Method that shows the progress of an import in the addSong JButton, which cancels it when clicked.
+     *
+     * @param processed number of files already processed.
+     * @param total number of files being imported.
+     */
+    public void setProgress(int processed, int total){
+        addSong.setText("CANCEL IMPORT (%d/%d)".formatted(processed, total));
+        selectFile.setEnabled(false);
+    }
+
+    /**
+     * Method that restores the addSong JButton once an import is over.
+     *
+     */
+    public void clearProgress(){
+        addSong.setText("ADD SONG");
+        selectFile.setEnabled(true);
+    }
+
     /**
      * Method that retrieves the title entered by the user.
      *
@@ -260,15 +318,53 @@ public class AddSongUI extends Screen {
     }
 
     /**
-     * Method that lets the user choose a file using a JFileChooser.
+     * Method that retrieves the paths of all the song files selected by the user.
+     *
+     * @return List of Strings indicating the paths of the files.
+     */
+    public List<String> getPaths() {
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Method that returns whether several song files were selected.
+     *
+     * @return boolean indicating if more than one file is selected.
+     */
+    public boolean isMultipleSelection() {
+        return files.size() > 1;
+    }
+
+    /**
+     * Method that lets the user choose one or more files, or whole folders, using a JFileChooser.
+     * The audio files directly inside the chosen folders are selected.
      *
      */
     public void selectFile(){
         JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setMultiSelectionEnabled(true);
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
         int result = fileChooser.showOpenDialog(centerPanel);
 
         if (result == JFileChooser.APPROVE_OPTION) {
-            setFile(fileChooser.getSelectedFile().getAbsolutePath());
+            List<String> paths = new ArrayList<>();
+            for (File selected : fileChooser.getSelectedFiles()) {
+                if (selected.isDirectory()) {
+                    File[] children = selected.listFiles((dir, name) -> name.endsWith(".mp3") || name.endsWith(".wav"));
+                    if (children != null) {
+                        Arrays.sort(children);
+                        for (File child : children) {
+                            paths.add(child.getAbsolutePath());
+                        }
+                    }
+                }
+                else {
+                    paths.add(selected.getAbsolutePath());
+                }
+            }
+            if (!paths.isEmpty()) {
+                setFiles(paths);
+            }
         }
     }
 
@@ -297,12 +393,15 @@ public class AddSongUI extends Screen {
 
     /**
      * Method that returns the content of the fields entered by the user.
+     * The title is not required when several files are selected.
      *
      * @return ArrayList of Strings indicating the fields entered by the user.
      */
     public ArrayList<String> getFields(){
         ArrayList<String> fields = new ArrayList<>();
-        fields.add(getTitle());
+        if (!isMultipleSelection()) {
+            fields.add(getTitle());
+        }
         fields.add(getGenre());
         fields.add(getAlbum());
         fields.add(getArtist());
@@ -319,6 +418,50 @@ public class AddSongUI extends Screen {
         return new Song(title.getText(), artist.getText(), album.getText(), genre, user);
     }
 
+    /**
+     * Method that returns a new Song for every selected file, in the same order as {@link #getPaths()}.
+     * When several files are selected, each song is titled after its file name.
+     *
+     * @param user String indicating the owner of the songs.
+     * @return List of Songs with the information entered by the user.
+     */
+    public List<Song> getSongs(String user) {
+        if (!isMultipleSelection()) {
+            return List.of(getSong(user));
+        }
+        List<Song> songs = new ArrayList<>();
+        for (String path : files) {
+            String name = new File(path).getName();
+            int extension = name.lastIndexOf('.');
+            if (extension > 0) {
+                name = name.substring(0, extension);
+            }
+            if (name.length() > MAX_TITLE_LENGTH) {
+                name = name.substring(0, MAX_TITLE_LENGTH);
+            }
+            songs.add(new Song(name, artist.getText(), album.getText(), genre, user));
+        }
+        return songs;
+    }
+
+    /**
+     * Method used to know whether the MP3 files are to be stored compressed.
+     *
+     * @return true if they are kept compressed, false if they are expanded to WAV.
+     */
+    public boolean isKeepCompressed() {
+        return keepCompressed.isSelected();
+    }
+
+    /**
+     * Method used to set whether the MP3 files are to be stored compressed.
+     *
+     * @param selected true to keep them compressed, false to expand them to WAV.
+     */
+    public void setKeepCompressed(boolean selected) {
+        keepCompressed.setSelected(selected);
+    }
+
     /**
      * Method that clears the fields of the view.
      *
@@ -36,6 +36,10 @@ public class AvailableSongsUI extends Screen {
      * TableRowSorter to sort the JTable.
      */
     private TableRowSorter <TableModel> tableRowSorter;
+    /**
+     * Runnable notified every time the text of the search bar changes.
+     */
+    private Runnable searchListener;
     /**
      * Dimension representing the size of the search bar.
      */
@@ -119,14 +123,12 @@ public class AvailableSongsUI extends Screen {
         search.getDocument().addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
-                String text = getTitle();
-                searchText(text);
+                searchChanged();
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
-                String text = getTitle();
-                searchText(text);
+                searchChanged();
             }
 
             @Override
@@ -137,29 +139,35 @@ public class AvailableSongsUI extends Screen {
     }
 
     /**
-     * Method used to update the table with the songs passed as a parameter.
-     * @param songs 2D array of objects representing the songs to be displayed in the table.
-     * @param listSongs List of songs to be displayed in the table.
+     * Method used to empty the table before its songs are loaded again.
      */
-    public void updateTable(Object[][] songs, List<String[]> listSongs) {
-        for(int i = 0; i < listSongs.size(); i++) {
-            Object[] song = listSongs.get(i);
-            songs[i] = (new Object[]{song[0], song[1], song[2], song[3], song[4], song[5]});
-        }
+    public void clearTable() {
+        jTableModel.clearTable();
+    }
 
-        jTableModel.updateTable(songs);
+    /**
+     * Method used to append a batch of songs to the table.
+     * @param listSongs List of songs to be appended, each one as its id, title, genre, album, artist and owner.
+     */
+    public void addSongs(List<String[]> listSongs) {
+        jTableModel.addRows(listSongs);
     }
 
     /**
-     * Method used to filter the table with the text passed as a parameter.
-     * @param text String representing the text to be used as a filter.
+     * Method used to set the listener notified every time the text of the search bar changes,
+     * so the songs matching it are searched in the database.
+     * @param searchListener Runnable to be notified.
      */
-    public void searchText(String text) {
-        if(text.length() == 0) {
-            tableRowSorter.setRowFilter(null);
-        }
-        else {
-            tableRowSorter.setRowFilter(RowFilter.regexFilter("(?i)" + text));
+    public void setSearchListener(Runnable searchListener) {
+        this.searchListener = searchListener;
+    }
+
+    /**
+     * Method used to notify the search listener that the text of the search bar has changed.
+     */
+    private void searchChanged() {
+        if (searchListener != null) {
+            searchListener.run();
         }
     }
 
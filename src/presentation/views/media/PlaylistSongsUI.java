@@ -6,6 +6,7 @@ import presentation.views.components.JTableModel;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
+import javax.swing.event.ChangeListener;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
@@ -253,6 +254,31 @@ public class PlaylistSongsUI extends Screen {
         return tableModel.getTable();
     }
 
+    /**
+     * Method that adds a listener notified whenever the table is scrolled or resized.
+     *
+     * @param listener that will listen to the visible part of the table.
+     */
+    public void setViewportListener(ChangeListener listener){
+        tableModel.getScrollPane().getViewport().addChangeListener(listener);
+    }
+
+    /**
+     * Returns the rows of the table that can be seen.
+     *
+     * @return first and last visible rows, or an empty array if none is visible.
+     */
+    public int[] getVisibleRows(){
+        JTable table = tableModel.getTable();
+        Rectangle visible = tableModel.getScrollPane().getViewport().getViewRect();
+        int first = table.rowAtPoint(new Point(0, visible.y));
+        int last = table.rowAtPoint(new Point(0, visible.y + visible.height - 1));
+        if (first == -1) {
+            return new int[0];
+        }
+        return new int[]{first, last == -1 ? table.getRowCount() - 1 : last};
+    }
+
     /**
      * Returns the id of the song in the playlist songs table.
      *
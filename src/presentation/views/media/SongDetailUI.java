@@ -84,6 +84,15 @@ public class SongDetailUI extends Screen {
         albumName.setText(album + " · " + genre);
         durationName.setText(duration);
         ownerName.setText("Added by: " + owner);
+        setLyrics(lyrics);
+    }
+
+    /**
+     * Method that updates the lyrics of the song, scrolling back to their start.
+     *
+     * @param lyrics String representing the lyrics of the song.
+     */
+    public void setLyrics(String lyrics) {
         lyricsArea.setText(lyrics);
         scrollPane.getViewport().setViewPosition( new Point(0, 0) );
         vertical.setValue( vertical.getMinimum());
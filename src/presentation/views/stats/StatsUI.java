@@ -44,6 +44,7 @@ public class StatsUI extends Screen {
      */
     public void setStats(ArrayList<Statistic> stats) {
         this.stats = stats;
+        repaint();
     }
 
     /**